@@ -0,0 +1,346 @@
+package dev.fuxing.transport.client;
+
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.err.UnknownException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.io.Closeable;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking engine backed by Apache HttpAsyncClient 5, HTTP/2 capable.
+ * <p>
+ * Connections are pooled per route (scheme, host and port), HTTP/2 requests to the same route are multiplexed
+ * over a single connection. The engine should be shared and closed when no longer needed.
+ * Response body is parsed on the builder executor, I/O dispatcher threads are not blocked by parsing.
+ * Requests must be created with their http method, e.g. from {@link TransportClient}.
+ * <pre>
+ * {@code
+ * AsyncTransportEngine engine = AsyncTransportEngine.builder()
+ *         .maxPerRoute(50)
+ *         .maxPerRoute("https://api.fuxing.dev", 200)
+ *         .keepAlive(Duration.ofSeconds(30))
+ *         .build();
+ *
+ * TransportClient client = new ServiceClient("https://api.fuxing.dev", engine);
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-13
+ * Time: 16:02
+ */
+public final class AsyncTransportEngine implements TransportEngine, Closeable {
+    private final CloseableHttpAsyncClient client;
+    private final Executor executor;
+
+    private AsyncTransportEngine(Builder builder) {
+        PoolingAsyncClientConnectionManager manager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(builder.maxTotal)
+                .setMaxConnPerRoute(builder.maxPerRoute)
+                .setConnectionTimeToLive(toTimeValue(builder.timeToLive))
+                .build();
+        builder.routes.forEach(manager::setMaxPerRoute);
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(toTimeout(builder.connectTimeout))
+                .setResponseTimeout(toTimeout(builder.responseTimeout))
+                .build();
+
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(builder.ioThreads)
+                .setSoKeepAlive(true)
+                .build();
+
+        this.client = HttpAsyncClients.custom()
+                .setVersionPolicy(builder.versionPolicy)
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                .setIOReactorConfig(reactorConfig)
+                .setKeepAliveStrategy((response, context) -> toTimeValue(builder.keepAlive))
+                .evictIdleConnections(toTimeValue(builder.keepAlive))
+                .build();
+        this.client.start();
+        this.executor = builder.executor;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) {
+        try {
+            return executeAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ErrorURL) throw (ErrorURL) e.getCause();
+            throw new UnknownException("Unknown error.", e.getCause());
+        } catch (CancellationException e) {
+            throw new UnknownException("Request cancelled.", e);
+        }
+    }
+
+    /**
+     * HttpAsyncClient 5 buffers the body, the handler will receive the buffered entity.
+     */
+    @Override
+    public <T> T execute(TransportRequest request, ResponseHandler<T> handler) {
+        try {
+            SimpleHttpResponse result = send(request).join();
+            BasicHttpResponse response = asHttpResponse(result);
+            byte[] body = result.getBodyBytes();
+            if (body != null) {
+                response.setEntity(new ByteArrayEntity(body));
+            }
+            return handler.handleResponse(response);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ErrorURL) throw (ErrorURL) e.getCause();
+            throw new UnknownException("Unknown error.", e.getCause());
+        } catch (CancellationException e) {
+            throw new UnknownException("Request cancelled.", e);
+        } catch (ErrorURL e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnknownException("Unknown error.", e);
+        }
+    }
+
+    /**
+     * Cancelling the future cancels the request.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        CompletableFuture<SimpleHttpResponse> sent = send(request);
+        CompletableFuture<TransportResponse> future = sent.thenApplyAsync(result -> request.asResponse(asHttpResponse(result), result.getBodyText()), executor);
+        future.whenComplete((response, throwable) -> {
+            if (future.isCancelled()) sent.cancel(false);
+        });
+        return future;
+    }
+
+    private CompletableFuture<SimpleHttpResponse> send(TransportRequest request) {
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+
+        if (request.getMethod() == null) {
+            future.completeExceptionally(new IllegalArgumentException("TransportRequest must be created with a http method for AsyncTransportEngine."));
+            return future;
+        }
+
+        SimpleHttpRequest http;
+        try {
+            http = SimpleHttpRequests.create(request.getMethod(), request.asURI());
+        } catch (URISyntaxException e) {
+            future.completeExceptionally(new UnknownException("Unknown error.", e));
+            return future;
+        }
+
+        request.headers.forEach(header -> http.addHeader(header.getName(), header.getValue()));
+        if (request.body != null) {
+            http.setBody(request.body, ContentType.APPLICATION_JSON);
+        }
+
+        Future<SimpleHttpResponse> execution = client.execute(http, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                future.completeExceptionally(new UnknownException("Unknown error.", ex));
+            }
+
+            @Override
+            public void cancelled() {
+                // e.g. engine closed, failed like other errors instead of a raw CancellationException
+                future.completeExceptionally(new UnknownException("Request cancelled.", new CancellationException()));
+            }
+        });
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) execution.cancel(true);
+        });
+        return future;
+    }
+
+    /**
+     * @param result from HttpAsyncClient 5
+     * @return HttpResponse with status line and headers for TransportResponse
+     */
+    private static BasicHttpResponse asHttpResponse(SimpleHttpResponse result) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, result.getCode(), result.getReasonPhrase());
+        for (org.apache.hc.core5.http.Header header : result.getHeaders()) {
+            response.addHeader(header.getName(), header.getValue());
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    /**
+     * @return Builder for AsyncTransportEngine
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for AsyncTransportEngine
+     */
+    public static final class Builder {
+        private int maxTotal = 200;
+        private int maxPerRoute = 20;
+        private final Map<HttpRoute, Integer> routes = new HashMap<>();
+
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration timeToLive = Duration.ofMinutes(5);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(30);
+
+        private HttpVersionPolicy versionPolicy = HttpVersionPolicy.NEGOTIATE;
+        private int ioThreads = Runtime.getRuntime().availableProcessors();
+        private Executor executor = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxTotal max connections in total
+         * @return Builder chaining
+         */
+        public Builder maxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+            return this;
+        }
+
+        /**
+         * @param maxPerRoute default max connections per route
+         * @return Builder chaining
+         */
+        public Builder maxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+            return this;
+        }
+
+        /**
+         * @param url         of route, e.g. https://api.fuxing.dev
+         * @param maxPerRoute max connections for this route
+         * @return Builder chaining
+         */
+        public Builder maxPerRoute(String url, int maxPerRoute) {
+            try {
+                HttpHost host = HttpHost.create(url);
+                boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+                if (host.getPort() < 0) {
+                    host = new HttpHost(host.getSchemeName(), host.getHostName(), secure ? 443 : 80);
+                }
+                this.routes.put(new HttpRoute(host, null, secure), maxPerRoute);
+                return this;
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("url is malformed: " + url, e);
+            }
+        }
+
+        /**
+         * @param keepAlive how long an idle connection is kept alive
+         * @return Builder chaining
+         */
+        public Builder keepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param timeToLive max time a pooled connection can be reused
+         * @return Builder chaining
+         */
+        public Builder timeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout to establish connection
+         * @return Builder chaining
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param responseTimeout to wait for response
+         * @return Builder chaining
+         */
+        public Builder responseTimeout(Duration responseTimeout) {
+            this.responseTimeout = responseTimeout;
+            return this;
+        }
+
+        /**
+         * @param http2 true to force HTTP/2 (h2c for http), false to force HTTP/1.1, default negotiate via TLS ALPN
+         * @return Builder chaining
+         */
+        public Builder http2(boolean http2) {
+            this.versionPolicy = http2 ? HttpVersionPolicy.FORCE_HTTP_2 : HttpVersionPolicy.FORCE_HTTP_1;
+            return this;
+        }
+
+        /**
+         * @param ioThreads number of I/O dispatcher threads
+         * @return Builder chaining
+         */
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * @param executor to parse response body with, default to the common pool
+         * @return Builder chaining
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public AsyncTransportEngine build() {
+            return new AsyncTransportEngine(this);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package dev.fuxing.transport.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.err.UnknownException;
+import dev.fuxing.utils.JsonUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in response cache for GET requests, decorating another engine.
+ * <p>
+ * Responses are keyed by method, url and query, bounded by size with least recently used eviction.
+ * Freshness follow the response "Cache-Control" max-age, no-cache, no-store and private directives.
+ * Stale responses with "ETag" are revalidated with "If-None-Match", a 304 reuse the cached JsonNode.
+ * Request with "Authorization" or "Cookie" are never cached, cached responses are only reused for requests
+ * with the same values of the headers named in the response "Vary".
+ * Each hit receive its own copy of the cached JsonNode, mutating it does not affect the cache.
+ * <pre>
+ * {@code
+ * CachingTransportEngine engine = CachingTransportEngine.builder()
+ *         .maxSize(1000)
+ *         .defaultTtl(Duration.ofSeconds(10))
+ *         .build();
+ *
+ * TransportClient client = new ServiceClient("https://api.fuxing.dev", engine);
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-17
+ * Time: 20:34
+ */
+public final class CachingTransportEngine implements TransportEngine {
+    /**
+     * Max delta-seconds of max-age, larger values are capped, see RFC 7234 section 1.2.1
+     */
+    private static final long MAX_AGE_SECONDS = Integer.MAX_VALUE;
+
+    private final TransportEngine delegate;
+    private final long defaultTtlNanos;
+    private final Map<String, CachedResponse> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    private CachingTransportEngine(Builder builder) {
+        this.delegate = builder.delegate != null ? builder.delegate : new FluentTransportEngine(TransportClient.SHARED_EXECUTOR);
+        this.defaultTtlNanos = builder.defaultTtl.toNanos();
+
+        int maxSize = builder.maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) {
+        String key = key(request);
+        if (key == null) return delegate.execute(request);
+
+        CachedResponse entry = get(key, request);
+        if (entry != null && entry.isFresh()) {
+            hits.increment();
+            return entry.copy();
+        }
+
+        TransportResponse response = delegate.execute(conditional(request, entry));
+        return store(key, request, entry, response);
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        String key = key(request);
+        if (key == null) return delegate.executeAsync(request);
+
+        CachedResponse entry = get(key, request);
+        if (entry != null && entry.isFresh()) {
+            hits.increment();
+            return CompletableFuture.completedFuture(entry.copy());
+        }
+
+        return delegate.executeAsync(conditional(request, entry))
+                .thenApply(response -> store(key, request, entry, response));
+    }
+
+    /**
+     * For cacheable request, the handler receive the cached JsonNode instead of the response stream.
+     */
+    @Override
+    public <T> T execute(TransportRequest request, ResponseHandler<T> handler) {
+        if (key(request) == null) return delegate.execute(request, handler);
+
+        TransportResponse response = execute(request);
+        try {
+            return handler.handleResponse(asHttpResponse(response));
+        } catch (ErrorURL e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnknownException("Unknown error.", e);
+        }
+    }
+
+    /**
+     * @return number of requests served from cache without network
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests that fully downloaded the response
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of requests revalidated with 304 Not Modified
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return number of cached responses
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Clear all cached responses
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @param key     of request
+     * @param request to match the "Vary" headers of the cached response with
+     * @return cached response, null if none or the "Vary" headers are different
+     */
+    private CachedResponse get(String key, TransportRequest request) {
+        CachedResponse entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.matches(request)) return null;
+        return entry;
+    }
+
+    private TransportResponse store(String key, TransportRequest request, CachedResponse entry, TransportResponse response) {
+        if (entry != null && response.getStatus() == 304) {
+            revalidations.increment();
+            long ttl = ttlNanos(response);
+            if (ttl < 0) {
+                synchronized (entries) {
+                    entries.remove(key);
+                }
+            } else {
+                put(key, new CachedResponse(entry.response, entry.etag, entry.vary, System.nanoTime() + ttl));
+            }
+            return entry.copy();
+        }
+
+        misses.increment();
+        if (response.getStatus() != 200 || response.getNode() == null) return response;
+
+        long ttl = ttlNanos(response);
+        String etag = response.getHeader("ETag");
+        Map<String, String> vary = vary(request, response);
+        if (ttl < 0 || (ttl == 0 && etag == null) || vary == null) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            return response;
+        }
+
+        // Cache a copy, the caller own the response and may mutate its JsonNode
+        TransportResponse cached = new TransportResponse(response.getResponse(), response.getNode().deepCopy());
+        put(key, new CachedResponse(cached, etag, vary, System.nanoTime() + ttl));
+        return response;
+    }
+
+    private void put(String key, CachedResponse entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * @param response to read "Cache-Control" from
+     * @return ttl in nanos, -1 if response must not be stored
+     */
+    private long ttlNanos(TransportResponse response) {
+        String cacheControl = response.getHeader("Cache-Control");
+        if (cacheControl == null) return defaultTtlNanos;
+
+        long ttl = defaultTtlNanos;
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim().toLowerCase();
+            if (directive.equals("no-store")) return -1;
+            if (directive.equals("private")) return -1;
+            if (directive.equals("no-cache")) return 0;
+            if (directive.startsWith("max-age=")) {
+                ttl = TimeUnit.SECONDS.toNanos(maxAgeSeconds(directive.substring(8)));
+            }
+        }
+        return ttl;
+    }
+
+    /**
+     * @param value of max-age
+     * @return delta-seconds, 0 if invalid, capped at {@link #MAX_AGE_SECONDS}
+     */
+    static long maxAgeSeconds(String value) {
+        if (value.isEmpty()) return 0;
+
+        long seconds = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return 0;
+
+            seconds = seconds * 10 + (c - '0');
+            if (seconds > MAX_AGE_SECONDS) return MAX_AGE_SECONDS;
+        }
+        return seconds;
+    }
+
+    /**
+     * @param request  to read the varying header values from
+     * @param response to read "Vary" from
+     * @return varying header names in lower case with request values, null if response must not be stored
+     */
+    private static Map<String, String> vary(TransportRequest request, TransportResponse response) {
+        Header[] headers = response.getResponse().getHeaders("Vary");
+        if (headers.length == 0) return Collections.emptyMap();
+
+        Map<String, String> vary = new HashMap<>();
+        for (Header header : headers) {
+            for (String name : header.getValue().split(",")) {
+                name = name.trim().toLowerCase();
+                if (name.isEmpty()) continue;
+                if (name.equals("*")) return null;
+                vary.put(name, header(request, name));
+            }
+        }
+        return vary;
+    }
+
+    /**
+     * @param request to read from
+     * @param name    of header, case insensitive
+     * @return values of the header joined with ",", null if absent
+     */
+    private static String header(TransportRequest request, String name) {
+        String value = null;
+        for (Header header : request.headers) {
+            if (!header.getName().equalsIgnoreCase(name)) continue;
+            value = value == null ? header.getValue() : value + "," + header.getValue();
+        }
+        return value;
+    }
+
+    /**
+     * @param request to key
+     * @return cache key, null if request is not cacheable
+     */
+    private static String key(TransportRequest request) {
+        if (!"GET".equals(request.getMethod())) return null;
+        // Responses to request with credentials are specific to the user
+        if (header(request, "Authorization") != null) return null;
+        if (header(request, "Cookie") != null) return null;
+
+        try {
+            return request.asURI().toString();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static TransportRequest conditional(TransportRequest request, CachedResponse entry) {
+        if (entry == null || entry.etag == null) return request;
+        return request.copy().header("If-None-Match", entry.etag);
+    }
+
+    private static HttpResponse asHttpResponse(TransportResponse cached) {
+        HttpResponse source = cached.getResponse();
+        BasicHttpResponse response = new BasicHttpResponse(source.getStatusLine());
+        for (Header header : source.getAllHeaders()) {
+            response.addHeader(header);
+        }
+        response.setEntity(new JsonNodeEntity(cached.getNode()));
+        return response;
+    }
+
+    private static final class CachedResponse {
+        private final TransportResponse response;
+        private final String etag;
+        private final Map<String, String> vary;
+        private final long expiresAt;
+
+        private CachedResponse(TransportResponse response, String etag, Map<String, String> vary, long expiresAt) {
+            this.response = response;
+            this.etag = etag;
+            this.vary = vary;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isFresh() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+
+        /**
+         * @param request to compare
+         * @return whether the request has the same values for the headers in "Vary"
+         */
+        private boolean matches(TransportRequest request) {
+            for (Map.Entry<String, String> entry : vary.entrySet()) {
+                if (!Objects.equals(entry.getValue(), header(request, entry.getKey()))) return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return response with a copy of the cached JsonNode
+         */
+        private TransportResponse copy() {
+            return new TransportResponse(response.getResponse(), response.getNode().deepCopy());
+        }
+    }
+
+    /**
+     * Entity of an already parsed JsonNode, {@link TransportResponseParser} read the node directly.
+     */
+    static final class JsonNodeEntity extends AbstractHttpEntity {
+        private final JsonNode node;
+
+        JsonNodeEntity(JsonNode node) {
+            this.node = node;
+            setContentType(ContentType.APPLICATION_JSON.toString());
+        }
+
+        JsonNode getNode() {
+            return node;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(JsonUtils.toString(node).getBytes(ContentType.APPLICATION_JSON.getCharset()));
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            JsonUtils.objectMapper.writeValue(out, node);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /**
+     * @return Builder for CachingTransportEngine
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for CachingTransportEngine
+     */
+    public static final class Builder {
+        private TransportEngine delegate;
+        private int maxSize = 1000;
+        private Duration defaultTtl = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        /**
+         * @param delegate engine to execute request with, default to fluent executor
+         * @return Builder chaining
+         */
+        public Builder delegate(TransportEngine delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * @param maxSize max number of cached responses
+         * @return Builder chaining
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param defaultTtl freshness for response without "Cache-Control" max-age, default 0: always revalidate
+         * @return Builder chaining
+         */
+        public Builder defaultTtl(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+            return this;
+        }
+
+        public CachingTransportEngine build() {
+            return new CachingTransportEngine(this);
+        }
+    }
+}
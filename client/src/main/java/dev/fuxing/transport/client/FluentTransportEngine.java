@@ -0,0 +1,111 @@
+package dev.fuxing.transport.client;
+
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.err.UnknownException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.client.fluent.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default engine, backed by fluent-hc Executor.
+ * Async execution is not native, it blocks a thread from a shared daemon pool of {@link #ASYNC_THREADS} threads,
+ * requests beyond it are queued. Provide an ExecutorService to size it differently.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-13
+ * Time: 15:46
+ */
+public class FluentTransportEngine implements TransportEngine {
+    public static final int ASYNC_THREADS = 64;
+    private static final ExecutorService ASYNC_EXECUTOR = asyncExecutor();
+
+    private final Executor executor;
+    private final ExecutorService asyncExecutor;
+
+    /**
+     * @param executor fluent executor to execute request with
+     */
+    public FluentTransportEngine(Executor executor) {
+        this(executor, ASYNC_EXECUTOR);
+    }
+
+    /**
+     * @param executor      fluent executor to execute request with
+     * @param asyncExecutor to block on async request with
+     */
+    public FluentTransportEngine(Executor executor, ExecutorService asyncExecutor) {
+        this.executor = executor;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    private static ExecutorService asyncExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "transport-fluent-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) {
+        try {
+            return execute(request, request.asRequest());
+        } catch (ErrorURL e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnknownException("Unknown error.", e);
+        }
+    }
+
+    private TransportResponse execute(TransportRequest request, Request fluent) {
+        try {
+            Response response = executor.execute(fluent);
+            return request.asResponse(response);
+        } catch (ErrorURL e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnknownException("Unknown error.", e);
+        }
+    }
+
+    @Override
+    public <T> T execute(TransportRequest request, ResponseHandler<T> handler) {
+        try {
+            Request fluent = request.asRequest();
+            return executor.execute(fluent).handleResponse(handler);
+        } catch (ErrorURL e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnknownException("Unknown error.", e);
+        }
+    }
+
+    /**
+     * Cancelling the future aborts the request.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        Request fluent;
+        try {
+            fluent = request.asRequest();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new UnknownException("Unknown error.", e));
+        }
+
+        CompletableFuture<TransportResponse> future = CompletableFuture.supplyAsync(() -> execute(request, fluent), asyncExecutor);
+        future.whenComplete((response, throwable) -> {
+            if (future.isCancelled()) fluent.abort();
+        });
+        return future;
+    }
+}
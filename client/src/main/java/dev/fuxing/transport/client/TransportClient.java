@@ -4,6 +4,8 @@ package dev.fuxing.transport.client;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 
+import javax.annotation.Nullable;
+
 /**
  * Created By: Fuxing Loh
  * Date: 18/3/2017
@@ -13,12 +15,23 @@ public abstract class TransportClient {
     protected static final Executor SHARED_EXECUTOR = Executor.newInstance();
 
     protected final String url;
+    protected final TransportEngine engine;
 
     /**
      * @param url must not end with /
      */
     public TransportClient(String url) {
+        this(url, null);
+    }
+
+    /**
+     * @param url    must not end with /
+     * @param engine to execute request with, {@code null} for the default fluent executor
+     * @see AsyncTransportEngine for non-blocking, HTTP/2 capable engine
+     */
+    public TransportClient(String url, @Nullable TransportEngine engine) {
         this.url = url;
+        this.engine = engine;
     }
 
     /**
@@ -44,41 +57,42 @@ public abstract class TransportClient {
 
     protected TransportRequest internalBefore(TransportRequest request) {
         request.executor = SHARED_EXECUTOR;
+        request.engine = engine;
         return before(request);
     }
 
     protected TransportRequest doGet(String path) {
-        TransportRequest request = new TransportRequest(Request::Get, path(path));
+        TransportRequest request = new TransportRequest("GET", Request::Get, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doHead(String path) {
-        TransportRequest request = new TransportRequest(Request::Head, path(path));
+        TransportRequest request = new TransportRequest("HEAD", Request::Head, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doOptions(String path) {
-        TransportRequest request = new TransportRequest(Request::Options, path(path));
+        TransportRequest request = new TransportRequest("OPTIONS", Request::Options, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doPost(String path) {
-        TransportRequest request = new TransportRequest(Request::Post, path(path));
+        TransportRequest request = new TransportRequest("POST", Request::Post, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doDelete(String path) {
-        TransportRequest request = new TransportRequest(Request::Delete, path(path));
+        TransportRequest request = new TransportRequest("DELETE", Request::Delete, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doPatch(String path) {
-        TransportRequest request = new TransportRequest(Request::Patch, path(path));
+        TransportRequest request = new TransportRequest("PATCH", Request::Patch, path(path));
         return internalBefore(request);
     }
 
     protected TransportRequest doPut(String path) {
-        TransportRequest request = new TransportRequest(Request::Put, path(path));
+        TransportRequest request = new TransportRequest("PUT", Request::Put, path(path));
         return internalBefore(request);
     }
 }
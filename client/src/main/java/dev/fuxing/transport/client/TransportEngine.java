@@ -0,0 +1,46 @@
+package dev.fuxing.transport.client;
+
+import org.apache.http.client.ResponseHandler;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Engine that execute TransportRequest into TransportResponse.
+ * <p>
+ * Default engine is {@link FluentTransportEngine}, backed by fluent-hc.
+ * For non-blocking calls, use {@link AsyncTransportEngine}.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-13
+ * Time: 15:40
+ */
+public interface TransportEngine {
+
+    /**
+     * Blocking execution of request.
+     *
+     * @param request to execute
+     * @return TransportResponse
+     * @throws dev.fuxing.err.ErrorURL error parsed from response, or UnknownException for other exception
+     */
+    TransportResponse execute(TransportRequest request);
+
+    /**
+     * Non-blocking execution of request, exception are completed exceptionally.
+     *
+     * @param request to execute
+     * @return CompletableFuture of TransportResponse
+     */
+    CompletableFuture<TransportResponse> executeAsync(TransportRequest request);
+
+    /**
+     * Blocking execution of request, the response entity is handled as a stream if the engine supports it.
+     *
+     * @param request to execute
+     * @param handler to handle the response
+     * @param <T>     type returned by handler
+     * @return result from handler
+     * @throws dev.fuxing.err.ErrorURL error parsed from response, or UnknownException for other exception
+     */
+    <T> T execute(TransportRequest request, ResponseHandler<T> handler);
+}
@@ -0,0 +1,126 @@
+package dev.fuxing.transport.client;
+
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.err.UnknownException;
+import dev.fuxing.transport.TransportList;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Iterator that follows the "next" cursor, the next pages are prefetched asynchronously while the
+ * current page is consumed. At most readAhead pages are fetched ahead of the consumer.
+ * <p>
+ * Pages are chained, a page can only be requested once the previous page cursor is known.
+ * Iteration ends at the first page without a "next" cursor, empty pages with a "next" cursor are skipped.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-16
+ * Time: 21:10
+ */
+final class TransportPageIterator<T> implements Iterator<T>, AutoCloseable {
+    private final Function<String, CompletableFuture<TransportList<T>>> fetcher;
+    private final int readAhead;
+
+    private final Deque<CompletableFuture<TransportList<T>>> pending = new ArrayDeque<>();
+    private final Set<CompletableFuture<TransportList<T>>> fetching = ConcurrentHashMap.newKeySet();
+    private CompletableFuture<TransportList<T>> tail;
+    private Iterator<T> current = Collections.emptyIterator();
+    private volatile boolean ended = false;
+
+    /**
+     * @param fetcher   to fetch page with cursor, {@code null} cursor for the first page
+     * @param readAhead number of pages to prefetch, must be at least 1
+     */
+    TransportPageIterator(Function<String, CompletableFuture<TransportList<T>>> fetcher, int readAhead) {
+        if (readAhead < 1) throw new IllegalArgumentException("readAhead must be at least 1");
+        this.fetcher = fetcher;
+        this.readAhead = readAhead;
+
+        this.tail = fetch(null);
+        this.pending.add(tail);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (ended || pending.isEmpty()) return false;
+
+            TransportList<T> page = join(pending.poll());
+            if (page == null) {
+                close();
+                return false;
+            }
+
+            current = page.iterator();
+            fill();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    /**
+     * Chain the next pages until read ahead is filled
+     */
+    private void fill() {
+        while (pending.size() < readAhead) {
+            tail = tail.thenCompose(previous -> {
+                // Null page marks the end, nothing after it is fetched
+                if (previous == null) return CompletableFuture.completedFuture(null);
+
+                String next = previous.getCursorNext();
+                if (next == null) return CompletableFuture.completedFuture(null);
+                return fetch(next);
+            });
+            pending.add(tail);
+        }
+    }
+
+    /**
+     * @param cursor of page, {@code null} for the first page
+     * @return page requested with the fetcher, {@code null} page once closed
+     */
+    private CompletableFuture<TransportList<T>> fetch(String cursor) {
+        if (ended) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<TransportList<T>> future = fetcher.apply(cursor);
+        fetching.add(future);
+        future.whenComplete((page, throwable) -> fetching.remove(future));
+        // Closed while the request was created
+        if (ended) future.cancel(false);
+        return future;
+    }
+
+    /**
+     * Stop prefetching, pending pages and in-flight requests are cancelled.
+     */
+    @Override
+    public void close() {
+        ended = true;
+        pending.forEach(future -> future.cancel(false));
+        pending.clear();
+        fetching.forEach(future -> future.cancel(false));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ErrorURL) throw (ErrorURL) e.getCause();
+            throw new UnknownException("Unknown error.", e.getCause());
+        }
+    }
+}
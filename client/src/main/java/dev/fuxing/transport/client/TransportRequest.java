@@ -4,6 +4,7 @@ package dev.fuxing.transport.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import dev.fuxing.err.*;
 import dev.fuxing.transport.TransportError;
+import dev.fuxing.transport.TransportList;
 import dev.fuxing.transport.client.request.RequestAs;
 import dev.fuxing.transport.client.request.RequestQuery;
 import dev.fuxing.utils.JsonUtils;
@@ -18,12 +19,19 @@ import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created By: Fuxing Loh
@@ -32,7 +40,9 @@ import java.util.function.Function;
  */
 public class TransportRequest implements RequestQuery, RequestAs {
     protected Executor executor;
+    protected TransportEngine engine;
 
+    protected String method;
     protected String url;
     protected String body;
 
@@ -41,15 +51,40 @@ public class TransportRequest implements RequestQuery, RequestAs {
 
     protected Function<URI, Request> requestFunction;
 
+    /**
+     * The http method is unknown to the request, it can only be executed by {@link FluentTransportEngine}.
+     *
+     * @param requestFunction fluent request function
+     * @param url             of request
+     * @see #TransportRequest(String, Function, String)
+     */
     public TransportRequest(Function<URI, Request> requestFunction, String url) {
         this.url = url;
         this.requestFunction = requestFunction;
     }
 
+    /**
+     * @param method          http method, e.g. GET
+     * @param requestFunction fluent request function for the default engine
+     * @param url             of request
+     */
+    public TransportRequest(String method, Function<URI, Request> requestFunction, String url) {
+        this(requestFunction, url);
+        this.method = method;
+    }
+
     public String getUrl() {
         return url;
     }
 
+    /**
+     * @return http method, e.g. GET, {@code null} if the request is created without it
+     */
+    @Nullable
+    public String getMethod() {
+        return method;
+    }
+
     /**
      * @param name  in path put
      * @param value for replace in path
@@ -81,29 +116,156 @@ public class TransportRequest implements RequestQuery, RequestAs {
     }
 
 
+    /**
+     * @param engine to execute this request with, {@code null} for fluent executor
+     * @return current TransportRequest instance for chaining
+     */
+    public TransportRequest engine(TransportEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * @return engine to execute this request with, default to fluent executor
+     */
+    protected TransportEngine engine() {
+        if (engine != null) return engine;
+
+        // Automatically default to SHARED_EXECUTOR if not set.
+        return new FluentTransportEngine(executor != null ? executor : TransportClient.SHARED_EXECUTOR);
+    }
+
     @Override
     public TransportResponse asResponse() {
-        if (executor != null) return asResponse(executor);
+        return engine().execute(this);
+    }
 
-        // Automatically default to SHARED_EXECUTOR if not set.
-        return asResponse(TransportClient.SHARED_EXECUTOR);
+    /**
+     * @param clazz for deserialize
+     * @param <T>   Class to use for deserialize
+     * @param <R>   Class to use for holding the list value, R must extend T
+     * @return CompletableFuture of Transport List, cancelling it cancels the request
+     */
+    public <T extends R, R> CompletableFuture<TransportList<R>> asDataListAsync(Class<T> clazz) {
+        CompletableFuture<TransportResponse> future = asResponseAsync();
+        CompletableFuture<TransportList<R>> list = future.thenApply(response -> response.asDataList(clazz));
+        list.whenComplete((value, throwable) -> {
+            if (list.isCancelled()) future.cancel(false);
+        });
+        return list;
+    }
+
+    /**
+     * Lazily follow the "next" cursor with 1 page prefetched.
+     *
+     * @param clazz for deserialize
+     * @param <T>   Class to use for deserialize
+     * @return Stream of all items across pages, close the stream to stop prefetching
+     * @see #asDataStream(Class, int)
+     */
+    public <T> Stream<T> asDataStream(Class<T> clazz) {
+        return asDataStream(clazz, 1);
+    }
+
+    /**
+     * Lazily follow the "next" cursor, the next pages are fetched asynchronously while the current page is
+     * consumed. At most readAhead pages are buffered ahead of the consumer.
+     * <p>
+     * The request is used as a template, each page is requested with a copy with the cursor query replaced.
+     *
+     * @param clazz     for deserialize
+     * @param readAhead number of pages to prefetch, at least 1
+     * @param <T>       Class to use for deserialize
+     * @return Stream of all items across pages, close the stream to stop prefetching
+     */
+    public <T> Stream<T> asDataStream(Class<T> clazz, int readAhead) {
+        TransportPageIterator<T> iterator = new TransportPageIterator<>(cursor -> {
+            TransportRequest request = cursor == null ? this : withCursor(cursor);
+            return request.asDataListAsync(clazz);
+        }, readAhead);
+
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Read a NDJSON (application/x-ndjson) response a line at a time, memory stays flat regardless of the size
+     * of the dataset. JSON response is also accepted, the items in data array are read instead.
+     * The response entity is only streamed by engines that support it, e.g. {@link FluentTransportEngine}.
+     * <pre>
+     * {@code
+     * long count = client.doGet("/articles/export")
+     *         .asNdjson(Article.class, articleRepository::save);
+     * }
+     * </pre>
+     *
+     * @param clazz    for deserialize
+     * @param consumer to accept each line as it is read
+     * @param <T>      Class to use for deserialize
+     * @return number of lines read
+     */
+    public <T> long asNdjson(Class<T> clazz, Consumer<? super T> consumer) {
+        TransportRequest request = copy().header("Accept", "application/x-ndjson, application/json");
+        return request.engine().execute(request, response -> TransportResponseParser.asNdjson(response, clazz, consumer));
+    }
+
+    /**
+     * @param cursor to replace the "cursor" query with
+     * @return copy of this request
+     */
+    protected TransportRequest withCursor(String cursor) {
+        TransportRequest request = copy();
+        request.queries.removeIf(query -> query.getName().equals("cursor"));
+        request.queryCursor(cursor);
+        return request;
+    }
+
+    /**
+     * @return copy of this request, headers and queries can be modified without affecting this request
+     */
+    protected TransportRequest copy() {
+        TransportRequest request = new TransportRequest(method, requestFunction, url);
+        request.executor = executor;
+        request.engine = engine;
+        request.body = body;
+        request.headers = new ArrayList<>(headers);
+        request.queries = new ArrayList<>(queries);
+        return request;
+    }
+
+    /**
+     * Data is bound directly from the response stream, the body is not buffered as String or JsonNode.
+     */
+    @Override
+    public <T> T asDataObject(Class<T> clazz) {
+        return engine().execute(this, response -> TransportResponseParser.asDataObject(response, clazz));
+    }
+
+    /**
+     * Data is bound directly from the response stream, the body is not buffered as String or JsonNode.
+     */
+    @Override
+    public <T extends R, R> TransportList<R> asDataList(Class<T> clazz) {
+        return engine().execute(this, response -> TransportResponseParser.asDataList(response, clazz));
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> asResponseAsync() {
+        return engine().executeAsync(this);
     }
 
     public TransportResponse asResponse(Executor executor) {
-        try {
-            Request request = asRequest();
-            Response response = executor.execute(request);
-            return asResponse(response);
-        } catch (Exception e) {
-            throw new UnknownException("Unknown error.", e);
-        }
+        return new FluentTransportEngine(executor).execute(this);
     }
 
-    protected Request asRequest() throws URISyntaxException {
+    protected URI asURI() throws URISyntaxException {
         URIBuilder builder = new URIBuilder(url);
         builder.addParameters(queries);
+        return builder.build();
+    }
 
-        Request request = requestFunction.apply(builder.build());
+    protected Request asRequest() throws URISyntaxException {
+        Request request = requestFunction.apply(asURI());
         headers.forEach(request::addHeader);
 
         if (body != null) {
@@ -114,13 +276,29 @@ public class TransportRequest implements RequestQuery, RequestAs {
 
     protected TransportResponse asResponse(Response res) throws IOException {
         HttpResponse response = res.returnResponse();
-        StatusLine status = response.getStatusLine();
         HttpEntity entity = response.getEntity();
+        // 204, 304 has no entity
+        if (entity == null) return asResponse(response, null);
+
+        try {
+            String json = EntityUtils.toString(entity, "UTF-8");
+            return asResponse(response, json);
+        } finally {
+            EntityUtils.consumeQuietly(entity);
+        }
+    }
 
-        String json = EntityUtils.toString(entity, "UTF-8");
+    /**
+     * @param response http response with status and headers
+     * @param json     body of response
+     * @return TransportResponse
+     * @throws ErrorURL if error body or gateway status is found
+     */
+    protected TransportResponse asResponse(HttpResponse response, String json) {
+        StatusLine status = response.getStatusLine();
         try {
             // Empty Json body will be ignored.
-            if (StringUtils.isBlank(json)) {
+            if (StringUtils.isNotBlank(json)) {
                 JsonNode body = JsonUtils.jsonToTree(json);
                 tryParseError(body);
                 return new TransportResponse(response, body);
@@ -132,8 +310,6 @@ public class TransportRequest implements RequestQuery, RequestAs {
         } catch (JsonException e) {
             tryParseStatus(status, e);
             throw e;
-        } finally {
-            EntityUtils.consumeQuietly(entity);
         }
     }
 
@@ -141,13 +317,17 @@ public class TransportRequest implements RequestQuery, RequestAs {
         if (!body.has("error")) return;
 
         TransportError error = JsonUtils.toObject(body.path("error"), TransportError.class);
+        throwError(error);
+    }
+
+    static void throwError(TransportError error) throws ErrorURL {
         if (StringUtils.isAnyBlank(error.getUrl(), error.getMessage()) || error.getCode() == null) {
             throw new UnknownException("Failed to parsed error body.");
         }
         throw new ErrorURL(error.getCode(), error.getUrl(), error.getMessage());
     }
 
-    private void tryParseStatus(StatusLine status, Exception e) throws ErrorURL {
+    static void tryParseStatus(StatusLine status, Exception e) throws ErrorURL {
         // 502, 503, 504: all gateway related status code
         switch (status.getStatusCode()) {
             case 502:
@@ -39,6 +39,13 @@ public class TransportResponse {
         this.body = body;
     }
 
+    /**
+     * @return underlying http response, entity is already consumed
+     */
+    HttpResponse getResponse() {
+        return response;
+    }
+
     public int getStatus() {
         StatusLine status = response.getStatusLine();
         return status.getStatusCode();
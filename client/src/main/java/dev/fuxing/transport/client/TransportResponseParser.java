@@ -0,0 +1,205 @@
+package dev.fuxing.transport.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.err.JsonException;
+import dev.fuxing.transport.TransportError;
+import dev.fuxing.transport.TransportList;
+import dev.fuxing.utils.JsonUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Single pass streaming parser for response body, data is bound directly from the entity InputStream.
+ * "cursor" and "error" nodes are extracted in the same pass, other nodes are skipped.
+ * Entity from {@link CachingTransportEngine} is already parsed, the cached node is bound instead.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-14
+ * Time: 18:21
+ */
+final class TransportResponseParser {
+    private TransportResponseParser() { /**/ }
+
+    /**
+     * @param response with entity to stream from
+     * @param clazz    class of data object
+     * @param <T>      type of data object
+     * @return data object, null if node is null or missing
+     * @throws ErrorURL if error node or gateway status is found
+     */
+    static <T> T asDataObject(HttpResponse response, Class<T> clazz) throws IOException {
+        if (response.getEntity() instanceof CachingTransportEngine.JsonNodeEntity) {
+            JsonNode node = ((CachingTransportEngine.JsonNodeEntity) response.getEntity()).getNode();
+            return new TransportResponse(response, node).asDataObject(clazz);
+        }
+
+        ObjectReader reader = JsonUtils.reader(clazz);
+        Parsed<T> parsed = parse(response, parser -> {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) return null;
+            return reader.readValue(parser);
+        });
+        return parsed.data;
+    }
+
+    /**
+     * @param response with entity to stream from
+     * @param clazz    class of each item in data array
+     * @param <T>      Class to use for deserialize
+     * @param <R>      Class to use for holding the list value, R must extend T
+     * @return TransportList with cursor
+     * @throws ErrorURL if error node or gateway status is found
+     */
+    static <T extends R, R> TransportList<R> asDataList(HttpResponse response, Class<T> clazz) throws IOException {
+        if (response.getEntity() instanceof CachingTransportEngine.JsonNodeEntity) {
+            JsonNode node = ((CachingTransportEngine.JsonNodeEntity) response.getEntity()).getNode();
+            return new TransportResponse(response, node).asDataList(clazz);
+        }
+
+        ObjectReader reader = JsonUtils.reader(clazz);
+        Parsed<List<R>> parsed = parse(response, parser -> {
+            List<R> list = new ArrayList<>();
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return list;
+            }
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                list.add(reader.readValue(parser));
+            }
+            return list;
+        });
+
+        List<R> list = parsed.data != null ? parsed.data : List.of();
+        if (parsed.cursor != null) {
+            return new TransportList<>(list, parsed.cursor);
+        }
+        return new TransportList<>(list);
+    }
+
+    /**
+     * NDJSON body is read a line at a time, JSON body fall back to the items in data array.
+     *
+     * @param response with entity to stream from
+     * @param clazz    class of each line
+     * @param consumer to accept each line as it is read
+     * @param <T>      Class to use for deserialize
+     * @return number of lines read
+     * @throws ErrorURL if error node or gateway status is found
+     */
+    static <T> long asNdjson(HttpResponse response, Class<T> clazz, Consumer<? super T> consumer) throws IOException {
+        ObjectReader reader = JsonUtils.reader(clazz);
+        HttpEntity entity = response.getEntity();
+        Header contentType = entity != null ? entity.getContentType() : null;
+
+        if (contentType == null || !contentType.getValue().startsWith("application/x-ndjson")) {
+            Parsed<Long> parsed = parse(response, parser -> {
+                long count = 0;
+                if (parser.currentToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    return count;
+                }
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    consumer.accept(reader.readValue(parser));
+                    count++;
+                }
+                return count;
+            });
+            return parsed.data != null ? parsed.data : 0;
+        }
+
+        try (InputStream in = entity.getContent(); JsonParser parser = JsonUtils.objectMapper.getFactory().createParser(in)) {
+            long count = 0;
+            while (parser.nextToken() != null) {
+                consumer.accept(reader.readValue(parser));
+                count++;
+            }
+            return count;
+        } catch (JsonProcessingException e) {
+            throw new JsonException("Your JSON is malformed.", e);
+        }
+    }
+
+    private static <D> Parsed<D> parse(HttpResponse response, DataReader<D> dataReader) throws IOException {
+        StatusLine status = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        Parsed<D> parsed = new Parsed<>();
+        if (entity == null) {
+            TransportRequest.tryParseStatus(status, null);
+            return parsed;
+        }
+
+        TransportError error = null;
+        try (InputStream in = entity.getContent(); JsonParser parser = JsonUtils.objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            // Empty Json body will be ignored.
+            if (token == null) {
+                TransportRequest.tryParseStatus(status, null);
+                return parsed;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected JSON object as response body.");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+
+                switch (name) {
+                    case "data":
+                        parsed.data = dataReader.read(parser);
+                        break;
+                    case "cursor":
+                        if (token == JsonToken.START_OBJECT) {
+                            parsed.cursor = JsonUtils.reader(JsonUtils.mapType(String.class, String.class)).readValue(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case "error":
+                        error = JsonUtils.reader(TransportError.class).readValue(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            TransportRequest.tryParseStatus(status, e);
+            throw new JsonException("Your JSON is malformed.", e);
+        }
+
+        if (error != null) {
+            TransportRequest.throwError(error);
+        }
+        return parsed;
+    }
+
+    private static final class Parsed<D> {
+        private D data;
+        private Map<String, String> cursor;
+    }
+
+    @FunctionalInterface
+    private interface DataReader<D> {
+        /**
+         * @param parser positioned at the first token of data node
+         * @return data read, parser must be positioned at the last token of data node
+         */
+        D read(JsonParser parser) throws IOException;
+    }
+}
@@ -5,6 +5,7 @@ import dev.fuxing.transport.TransportList;
 import dev.fuxing.transport.client.TransportResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by: Fuxing
@@ -60,4 +61,14 @@ public interface RequestAs {
      * @return TransportResponse
      */
     TransportResponse asResponse();
+
+    /**
+     * Call service without blocking the calling thread, exception are completed exceptionally.
+     * Unless overridden, it will block a thread from the common pool.
+     *
+     * @return CompletableFuture of TransportResponse
+     */
+    default CompletableFuture<TransportResponse> asResponseAsync() {
+        return CompletableFuture.supplyAsync(this::asResponse);
+    }
 }
@@ -0,0 +1,155 @@
+package dev.fuxing.transport.client;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.fuxing.utils.JsonUtils;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-29
+ * Time: 10:12
+ */
+class CachingTransportEngineTest {
+    StubEngine stub;
+    CachingTransportEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubEngine();
+        engine = CachingTransportEngine.builder().delegate(stub).build();
+    }
+
+    TransportRequest get() {
+        return new TransportRequest("GET", Request::Get, "http://domain/articles").engine(engine);
+    }
+
+    @Test
+    void hit() {
+        stub.cacheControl = "max-age=60";
+        get().asResponse();
+        get().asResponse();
+        assertEquals(1, stub.calls);
+        assertEquals(1, engine.getHits());
+    }
+
+    @Test
+    void copy() {
+        stub.cacheControl = "max-age=60";
+        ((ObjectNode) get().asResponse().getNode()).put("data", "changed");
+        ((ObjectNode) get().asResponse().getNode()).put("data", "changed");
+        assertEquals("value", get().asResponse().getDataNode().asText());
+        assertEquals(1, stub.calls);
+    }
+
+    @Test
+    void credentials() {
+        stub.cacheControl = "max-age=60";
+        get().header("Authorization", "Bearer token").asResponse();
+        get().header("Authorization", "Bearer token").asResponse();
+        get().header("Cookie", "session=1").asResponse();
+        assertEquals(3, stub.calls);
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void cacheControlPrivate() {
+        stub.cacheControl = "private, max-age=60";
+        get().asResponse();
+        get().asResponse();
+        assertEquals(2, stub.calls);
+    }
+
+    @Test
+    void vary() {
+        stub.cacheControl = "max-age=60";
+        stub.vary = "Accept-Language";
+        get().header("Accept-Language", "en").asResponse();
+        get().header("Accept-Language", "en").asResponse();
+        assertEquals(1, stub.calls);
+
+        get().header("Accept-Language", "fr").asResponse();
+        get().asResponse();
+        assertEquals(3, stub.calls);
+
+        stub.vary = "*";
+        engine.clear();
+        get().asResponse();
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void maxAge() {
+        stub.cacheControl = "max-age=99999999999999999999";
+        get().asResponse();
+        get().asResponse();
+        assertEquals(1, stub.calls);
+
+        assertEquals(Integer.MAX_VALUE, CachingTransportEngine.maxAgeSeconds("9223372036854775807"));
+        assertEquals(0, CachingTransportEngine.maxAgeSeconds("-1"));
+        assertEquals(0, CachingTransportEngine.maxAgeSeconds(""));
+        assertEquals(60, CachingTransportEngine.maxAgeSeconds("60"));
+    }
+
+    @Test
+    void revalidateNoStore() {
+        stub.cacheControl = "max-age=0";
+        stub.etag = "\"1\"";
+        get().asResponse();
+        assertEquals(1, engine.size());
+
+        // Revalidated, but the 304 must not be stored anymore
+        stub.notModified = true;
+        stub.cacheControl = "no-store";
+        assertEquals("value", get().asResponse().getDataNode().asText());
+        assertEquals(1, engine.getRevalidations());
+        assertEquals(0, engine.size());
+
+        stub.notModified = false;
+        get().asResponse();
+        assertEquals(3, stub.calls);
+        assertEquals(0, engine.size());
+    }
+
+    static class StubEngine implements TransportEngine {
+        int calls;
+        String cacheControl;
+        String vary;
+        String etag;
+        boolean notModified;
+
+        @Override
+        public TransportResponse execute(TransportRequest request) {
+            calls++;
+            if (notModified) {
+                BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+                if (cacheControl != null) response.addHeader("Cache-Control", cacheControl);
+                return new TransportResponse(response, null);
+            }
+
+            BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            if (cacheControl != null) response.addHeader("Cache-Control", cacheControl);
+            if (vary != null) response.addHeader("Vary", vary);
+            if (etag != null) response.addHeader("ETag", etag);
+            return new TransportResponse(response, JsonUtils.createObjectNode().put("data", "value"));
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+            return CompletableFuture.completedFuture(execute(request));
+        }
+
+        @Override
+        public <T> T execute(TransportRequest request, ResponseHandler<T> handler) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package dev.fuxing.transport.client;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.fuxing.err.ErrorURL;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.client.fluent.Request;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 16:12
+ */
+class TransportEngineTest {
+    private static final CountDownLatch hanging = new CountDownLatch(1);
+
+    private static HttpServer server;
+    private static String url;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/method", exchange -> {
+            byte[] body = ("{\"data\":\"" + exchange.getRequestMethod() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/hanging", exchange -> {
+            try {
+                hanging.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        hanging.countDown();
+        server.stop(0);
+    }
+
+    static TransportClient client(TransportEngine engine) {
+        return new TransportClient(url, engine) {
+        };
+    }
+
+    @Test
+    void asyncMethod() {
+        try (AsyncTransportEngine engine = AsyncTransportEngine.builder().build()) {
+            TransportClient client = client(engine);
+            assertEquals("GET", client.doGet("/method").asResponse().getDataNode().asText());
+            assertEquals("POST", client.doPost("/method").body(Map.of("a", 1)).asResponse().getDataNode().asText());
+            assertEquals("PATCH", client.doPatch("/method").body(Map.of("a", 1)).asResponse().getDataNode().asText());
+            assertEquals("DELETE", client.doDelete("/method").asResponse().getDataNode().asText());
+
+            // Method is not parsed from the fluent request
+            TransportRequest request = new TransportRequest(Request::Get, url + "/method").engine(engine);
+            assertNull(request.getMethod());
+            assertThrows(ErrorURL.class, request::asResponse);
+        }
+    }
+
+    @Test
+    void asyncExecutor() {
+        AtomicInteger parsed = new AtomicInteger();
+        try (AsyncTransportEngine engine = AsyncTransportEngine.builder()
+                .executor(runnable -> {
+                    parsed.incrementAndGet();
+                    runnable.run();
+                })
+                .build()) {
+            assertEquals("GET", client(engine).doGet("/method").asResponseAsync().join().getDataNode().asText());
+            assertEquals(1, parsed.get());
+        }
+    }
+
+    @Test
+    void asyncCancelled() throws Exception {
+        AsyncTransportEngine engine = AsyncTransportEngine.builder().build();
+        TransportRequest request = client(engine).doGet("/hanging");
+
+        CompletableFuture<Throwable> thrown = CompletableFuture.supplyAsync(() -> {
+            try {
+                request.asResponse();
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(200);
+        engine.close();
+
+        // Cancelled request fails with ErrorURL like other failures
+        assertTrue(thrown.get(10, TimeUnit.SECONDS) instanceof ErrorURL);
+
+        try (AsyncTransportEngine other = AsyncTransportEngine.builder().build()) {
+            CompletableFuture<TransportResponse> future = client(other).doGet("/hanging").asResponseAsync();
+            future.cancel(false);
+            assertTrue(future.isCancelled());
+        }
+    }
+
+    @Test
+    void fluentExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        try {
+            FluentTransportEngine engine = new FluentTransportEngine(Executor.newInstance(), pool);
+            assertEquals("POST", client(engine).doPost("/method").body(Map.of("a", 1)).asResponseAsync().join().getDataNode().asText());
+            assertEquals(1, pool.getTaskCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dev.fuxing.transport.client;
+
+import dev.fuxing.transport.TransportList;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.fluent.Request;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 14:40
+ */
+class TransportPageIteratorTest {
+
+    static TransportList<String> page(String next, String... items) {
+        if (next == null) return new TransportList<>(List.of(items));
+        return new TransportList<>(List.of(items), Map.of("next", next));
+    }
+
+    static List<String> drain(TransportPageIterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    @Test
+    void emptyPageWithCursor() {
+        Map<String, TransportList<String>> pages = Map.of(
+                "first", page("2", "a", "b"),
+                "2", page("3"),
+                "3", page(null, "c")
+        );
+        List<String> cursors = new ArrayList<>();
+        TransportPageIterator<String> iterator = new TransportPageIterator<>(cursor -> {
+            String key = cursor == null ? "first" : cursor;
+            cursors.add(key);
+            return CompletableFuture.completedFuture(pages.get(key));
+        }, 2);
+
+        assertEquals(List.of("a", "b", "c"), drain(iterator));
+        assertEquals(List.of("first", "2", "3"), cursors);
+    }
+
+    @Test
+    void missingCursor() {
+        List<String> cursors = new ArrayList<>();
+        TransportPageIterator<String> iterator = new TransportPageIterator<>(cursor -> {
+            cursors.add(cursor);
+            return CompletableFuture.completedFuture(page(null, "a"));
+        }, 3);
+
+        assertEquals(List.of("a"), drain(iterator));
+        assertEquals(1, cursors.size());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void closeInFlight() {
+        CompletableFuture<TransportList<String>> next = new CompletableFuture<>();
+        TransportPageIterator<String> iterator = new TransportPageIterator<>(cursor -> {
+            if (cursor == null) return CompletableFuture.completedFuture(page("2", "a"));
+            return next;
+        }, 1);
+
+        assertEquals("a", iterator.next());
+        iterator.close();
+        assertTrue(next.isCancelled());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void cancelRequest() {
+        CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+        TransportRequest request = new TransportRequest("GET", Request::Get, "http://domain/articles").engine(new TransportEngine() {
+            @Override
+            public TransportResponse execute(TransportRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+                return response;
+            }
+
+            @Override
+            public <T> T execute(TransportRequest request, ResponseHandler<T> handler) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        // Closing the stream cancels the request of the page in-flight
+        request.asDataStream(String.class).close();
+        assertTrue(response.isCancelled());
+    }
+}
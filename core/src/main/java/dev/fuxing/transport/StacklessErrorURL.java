@@ -0,0 +1,46 @@
+package dev.fuxing.transport;
+
+import dev.fuxing.err.ErrorURL;
+
+/**
+ * ErrorURL that skip stack trace capture, for expected errors that are mapped and thrown frequently.
+ * E.g. stale cursor or validation errors, where the stack trace is never logged.
+ * <pre>
+ * {@code
+ * protected boolean mapException(Exception exception) throws ErrorURL {
+ *     if (exception instanceof EntityNotFoundException) {
+ *         throw new StacklessErrorURL(404, "err.fuxing.dev/NotFoundException", "Entity not found.");
+ *     }
+ *     return false;
+ * }
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-07
+ * Time: 11:02
+ */
+public class StacklessErrorURL extends ErrorURL {
+    private static final long serialVersionUID = 4526718904573361220L;
+
+    /**
+     * @param code    status code
+     * @param url     error url
+     * @param message human readable message
+     */
+    public StacklessErrorURL(int code, String url, String message) {
+        super(code, url, message);
+    }
+
+    /**
+     * @param errorURL to copy code, url and message from
+     */
+    public StacklessErrorURL(ErrorURL errorURL) {
+        this(errorURL.getCode(), errorURL.getUrl(), errorURL.getMessage());
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
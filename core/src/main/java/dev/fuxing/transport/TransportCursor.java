@@ -16,6 +16,13 @@ import java.util.stream.Collectors;
  * Cursor contains the all the information for the next list of objects.
  * <p>
  * All parameters are converted into string. When required, it will be converted back into the primitive type.
+ * Parameters are stored in a flat sorted array, long and double values are parsed once when the cursor is created.
+ * Use {@link #getLongValue(String, long)}, {@link #getIntValue(String, int)} or {@link #getDoubleValue(String, double)}
+ * for allocation free access.
+ * <p>
+ * Cursor is encoded with {@link TransportCursorCodec} into base64, legacy JSON cursor can still be decoded.
+ * A codec with a dictionary of frequently used keys can be set with {@link #setCodec(TransportCursorCodec)}.
+ * When a {@link TransportCursorSigner} is set, cursor are signed and verified before decoding.
  * <p>
  * Created by: Fuxing
  * Date: 3/5/18
@@ -26,17 +33,63 @@ public class TransportCursor {
     private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
     private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
 
-    private Map<String, String> parameter;
+    @Nullable
+    private static volatile TransportCursorSigner signer;
+    private static volatile TransportCursorCodec codec = TransportCursorCodec.getDefault();
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+
+    private final String[] keys;
+    private final String[] values;
+    private final byte[] types;
+    private final long[] longs;
+    private final double[] doubles;
 
     /**
-     * @param parameter parameter
+     * @param parameter parameter, null values are dropped
      */
     protected TransportCursor(@NotNull Map<String, String> parameter) {
-        this.parameter = parameter;
+        this(new Builder().putAll(parameter));
     }
 
     private TransportCursor(Builder builder) {
-        this(builder.parameters);
+        Map<String, Object> parameter = builder.parameters;
+        int size = parameter.size();
+        this.keys = parameter.keySet().toArray(new String[size]);
+        Arrays.sort(keys);
+
+        this.values = new String[size];
+        this.types = new byte[size];
+        this.longs = new long[size];
+        this.doubles = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Object value = parameter.get(keys[i]);
+
+            // Long and Double are put or decoded as is, they are only parsed when put as String
+            if (value instanceof Long) {
+                types[i] = TYPE_LONG;
+                longs[i] = (Long) value;
+                values[i] = value.toString();
+            } else if (value instanceof Double) {
+                types[i] = TYPE_DOUBLE;
+                doubles[i] = (Double) value;
+                values[i] = value.toString();
+            } else {
+                String string = (String) value;
+                values[i] = string;
+
+                if (TransportCursorCodec.isCanonicalLong(string)) {
+                    types[i] = TYPE_LONG;
+                    longs[i] = Long.parseLong(string);
+                } else if (TransportCursorCodec.isCanonicalDouble(string)) {
+                    types[i] = TYPE_DOUBLE;
+                    doubles[i] = Double.parseDouble(string);
+                }
+            }
+        }
     }
 
     /**
@@ -45,8 +98,7 @@ public class TransportCursor {
      * @return size value from query string
      */
     public int size(int defaultSize, int maxSize) {
-        Integer size = getInt("size", defaultSize);
-        assert size != null : "size will always be present";
+        int size = getIntValue("size", defaultSize);
 
         if (size <= 0) return defaultSize;
         if (size >= maxSize) return maxSize;
@@ -61,11 +113,26 @@ public class TransportCursor {
         if (keys.length == 0) return false;
 
         for (String key : keys) {
-            if (!parameter.containsKey(key)) return false;
+            if (indexOf(key) < 0) return false;
         }
         return true;
     }
 
+    /**
+     * @param key of value
+     * @return index of key, negative if not found
+     */
+    private int indexOf(String key) {
+        // Cursor are small, linear scan is faster than binary search for a handful of keys
+        if (keys.length <= 8) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) return i;
+            }
+            return -1;
+        }
+        return Arrays.binarySearch(keys, key);
+    }
+
     /**
      * @param key of value
      * @return string or {@code null} if not found
@@ -80,7 +147,9 @@ public class TransportCursor {
      * @return string or {@code null} if not found
      */
     public String get(String key, String defaultValue) {
-        return parameter.getOrDefault(key, defaultValue);
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return values[i];
     }
 
     public <E extends Enum<E>> E getEnum(String key, Class<E> clazz, E defaultValue) {
@@ -108,10 +177,10 @@ public class TransportCursor {
 
     @Nullable
     public Date getDate(String key) {
-        Long millis = getLong(key, null);
-        if (millis == null) return null;
+        int i = indexOf(key);
+        if (i < 0) return null;
 
-        return new Timestamp(millis);
+        return new Timestamp(parseLong(i, key));
     }
 
     /**
@@ -132,11 +201,28 @@ public class TransportCursor {
      */
     @Nullable
     public Long getLong(String key, @Nullable Long defaultValue) {
-        String value = get(key);
-        if (value == null) return defaultValue;
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseLong(i, key);
+    }
+
+    /**
+     * @param key          of value
+     * @param defaultValue to return
+     * @return found or defaultValue
+     * @throws BadRequestException if cannot be parsed
+     */
+    public long getLongValue(String key, long defaultValue) {
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseLong(i, key);
+    }
+
+    private long parseLong(int i, String key) {
+        if (types[i] == TYPE_LONG) return longs[i];
 
         try {
-            return Long.parseLong(value);
+            return Long.parseLong(values[i]);
         } catch (NumberFormatException e) {
             throw new BadRequestException("The request could not be understood by the server due to malformed " + key + ".");
         }
@@ -160,11 +246,28 @@ public class TransportCursor {
      */
     @Nullable
     public Integer getInt(String key, @Nullable Integer defaultValue) {
-        String value = get(key);
-        if (value == null) return defaultValue;
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseInt(i, key);
+    }
+
+    /**
+     * @param key          of value
+     * @param defaultValue to return
+     * @return found or defaultValue
+     * @throws BadRequestException if cannot be parsed
+     */
+    public int getIntValue(String key, int defaultValue) {
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseInt(i, key);
+    }
+
+    private int parseInt(int i, String key) {
+        if (types[i] == TYPE_LONG && longs[i] == (int) longs[i]) return (int) longs[i];
 
         try {
-            return Integer.parseInt(value);
+            return Integer.parseInt(values[i]);
         } catch (NumberFormatException e) {
             throw new BadRequestException("The request could not be understood by the server due to malformed " + key + ".");
         }
@@ -188,11 +291,29 @@ public class TransportCursor {
      */
     @Nullable
     public Double getDouble(String key, @Nullable Double defaultValue) {
-        String value = get(key);
-        if (value == null) return defaultValue;
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseDouble(i, key);
+    }
+
+    /**
+     * @param key          of value
+     * @param defaultValue to return
+     * @return found or defaultValue
+     * @throws BadRequestException if cannot be parsed
+     */
+    public double getDoubleValue(String key, double defaultValue) {
+        int i = indexOf(key);
+        if (i < 0) return defaultValue;
+        return parseDouble(i, key);
+    }
+
+    private double parseDouble(int i, String key) {
+        if (types[i] == TYPE_DOUBLE) return doubles[i];
+        if (types[i] == TYPE_LONG) return longs[i];
 
         try {
-            return Double.parseDouble(value);
+            return Double.parseDouble(values[i]);
         } catch (NumberFormatException e) {
             throw new BadRequestException("The request could not be understood by the server due to malformed " + key + ".");
         }
@@ -206,8 +327,45 @@ public class TransportCursor {
     public static String toBase64(TransportCursor cursor) {
         if (cursor == null) return null;
 
-        String string = JsonUtils.toString(cursor.parameter);
-        return ENCODER.encodeToString(string.getBytes());
+        byte[] bytes = TransportCursor.codec.encode(cursor.keys, cursor.values);
+        TransportCursorSigner signer = TransportCursor.signer;
+        if (signer != null) {
+            bytes = signer.sign(bytes);
+        }
+        return ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * Once set, all cursor must be signed, unsigned cursor will be rejected.
+     *
+     * @param signer to sign and verify cursor with, {@code null} to disable
+     */
+    public static void setSigner(@Nullable TransportCursorSigner signer) {
+        TransportCursor.signer = signer;
+    }
+
+    /**
+     * @return signer cursor are signed and verified with, {@code null} if not set
+     */
+    @Nullable
+    public static TransportCursorSigner getSigner() {
+        return signer;
+    }
+
+    /**
+     * Cursor issued with a codec can only be decoded with the same codec or one with its dictionary appended.
+     *
+     * @param codec to encode and decode cursor with, {@code null} to use {@link TransportCursorCodec#getDefault()}
+     */
+    public static void setCodec(@Nullable TransportCursorCodec codec) {
+        TransportCursor.codec = codec != null ? codec : TransportCursorCodec.getDefault();
+    }
+
+    /**
+     * @return codec cursor are encoded and decoded with
+     */
+    public static TransportCursorCodec getCodec() {
+        return codec;
     }
 
     @Nullable
@@ -241,7 +399,8 @@ public class TransportCursor {
      * Builder for TransportCursor.
      */
     public static class Builder {
-        private Map<String, String> parameters = new HashMap<>();
+        // String, or Long and Double that are kept as is
+        private Map<String, Object> parameters = new HashMap<>();
 
         /**
          * @param key   name
@@ -250,7 +409,11 @@ public class TransportCursor {
          */
         public Builder put(String key, Object value) {
             Objects.requireNonNull(value, "Value required.");
-            this.parameters.put(key, value.toString());
+            if (value instanceof Long || value instanceof Double) {
+                this.parameters.put(key, value);
+            } else {
+                this.parameters.put(key, value.toString());
+            }
             return this;
         }
 
@@ -259,26 +422,54 @@ public class TransportCursor {
          * @return Builder chaining
          */
         public Builder putAll(TransportCursor cursor) {
-            this.parameters.putAll(cursor.parameter);
+            for (int i = 0; i < cursor.keys.length; i++) {
+                switch (cursor.types[i]) {
+                    case TYPE_LONG:
+                        this.parameters.put(cursor.keys[i], cursor.longs[i]);
+                        break;
+                    case TYPE_DOUBLE:
+                        this.parameters.put(cursor.keys[i], cursor.doubles[i]);
+                        break;
+                    default:
+                        this.parameters.put(cursor.keys[i], cursor.values[i]);
+                }
+            }
             return this;
         }
 
         /**
-         * @param parameters to put
+         * @param parameters to put, null values are dropped
          * @return Builder chaining
          */
         public Builder putAll(Map<String, String> parameters) {
-            this.parameters.putAll(parameters);
+            parameters.forEach((key, value) -> {
+                if (value != null) this.parameters.put(key, value);
+            });
             return this;
         }
 
         /**
          * @param base64 to convert from base 64 to parameters
          * @return Builder chaining
+         * @throws BadRequestException if cursor is malformed or cannot be verified
          */
         public Builder base64(String base64) {
-            byte[] decoded = DECODER.decode(base64);
-            parameters.putAll(JsonUtils.toMap(decoded, String.class, String.class));
+            byte[] decoded;
+            try {
+                decoded = DECODER.decode(base64);
+            } catch (IllegalArgumentException e) {
+                throw TransportCursorCodec.malformed();
+            }
+            TransportCursorSigner signer = TransportCursor.signer;
+            if (signer != null) {
+                decoded = signer.verify(decoded);
+            }
+
+            if (TransportCursorCodec.isJson(decoded)) {
+                putAll(JsonUtils.toMap(decoded, String.class, String.class));
+            } else {
+                TransportCursor.codec.decode(decoded, parameters::put);
+            }
             return this;
         }
 
@@ -293,6 +484,10 @@ public class TransportCursor {
 
     @Override
     public String toString() {
-        return JsonUtils.toString(parameter);
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return JsonUtils.toString(map);
     }
 }
@@ -0,0 +1,374 @@
+package dev.fuxing.transport;
+
+import dev.fuxing.err.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact binary codec for TransportCursor parameters.
+ * <p>
+ * Format (version 1):
+ * <pre>
+ * [version: byte] [count: varint] ([tag: byte] [key] [value]) * count
+ *
+ * tag:   bit 7 = key is dictionary index, bit 0-3 = value type
+ * key:   dictionary index as varint or [length: varint] [utf-8]
+ * value: STRING = [length: varint] [utf-8]
+ *        LONG   = zigzag varint
+ *        DOUBLE = 8 bytes IEEE 754, big endian
+ * </pre>
+ * Parameters are stored as string in TransportCursor, LONG and DOUBLE slots are only used when the string is the
+ * canonical representation of the number, so decoding will always produce the exact same string.
+ * <p>
+ * Legacy cursor are JSON object, they always start with '{' which is never a valid version byte.
+ * <p>
+ * The dictionary maps frequently used keys into an index, it must be append only as encoded cursor depends on it.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-08
+ * Time: 21:30
+ */
+public final class TransportCursorCodec {
+    public static final byte VERSION_1 = 1;
+
+    private static final int TAG_DICTIONARY = 0x80;
+    private static final int TYPE_MASK = 0x0F;
+    private static final int TYPE_STRING = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_DOUBLE = 2;
+
+    /**
+     * Default dictionary, append only.
+     */
+    private static final String[] DEFAULT_DICTIONARY = {
+            "size", "id", "sort", "createdAt", "updatedAt", "createdMillis", "updatedMillis",
+    };
+
+    private static final TransportCursorCodec DEFAULT = new TransportCursorCodec(DEFAULT_DICTIONARY);
+
+    private final String[] dictionary;
+    private final Map<String, Integer> dictionaryIndex;
+
+    /**
+     * @param dictionary of keys, append only, order must not be changed once cursor are issued
+     */
+    public TransportCursorCodec(String... dictionary) {
+        if (dictionary.length > 0xFFFF) throw new IllegalArgumentException("dictionary too large");
+
+        this.dictionary = Arrays.copyOf(dictionary, dictionary.length);
+        this.dictionaryIndex = new HashMap<>();
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionaryIndex.putIfAbsent(dictionary[i], i) != null) {
+                throw new IllegalArgumentException("dictionary contains duplicated key: " + dictionary[i]);
+            }
+        }
+    }
+
+    /**
+     * @return default codec with the default dictionary
+     */
+    public static TransportCursorCodec getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param bytes decoded from base64
+     * @return whether it's a legacy JSON cursor
+     */
+    public static boolean isJson(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == '{';
+    }
+
+    /**
+     * @param parameters to encode
+     * @return encoded bytes
+     */
+    public byte[] encode(Map<String, String> parameters) {
+        Writer writer = new Writer(16 + parameters.size() * 16);
+        writer.write(VERSION_1);
+        writer.writeVarint(parameters.size());
+
+        parameters.forEach((key, value) -> write(writer, key, value));
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param keys   of parameters
+     * @param values of parameters, same length as keys
+     * @return encoded bytes
+     */
+    byte[] encode(String[] keys, String[] values) {
+        Writer writer = new Writer(16 + keys.length * 16);
+        writer.write(VERSION_1);
+        writer.writeVarint(keys.length);
+
+        for (int i = 0; i < keys.length; i++) {
+            write(writer, keys[i], values[i]);
+        }
+        return writer.toByteArray();
+    }
+
+    private void write(Writer writer, String key, String value) {
+        Integer index = dictionaryIndex.get(key);
+        int tag = index != null ? TAG_DICTIONARY : 0;
+
+        long longValue = 0;
+        double doubleValue = 0;
+        if (isCanonicalLong(value)) {
+            tag |= TYPE_LONG;
+            longValue = Long.parseLong(value);
+        } else if (isCanonicalDouble(value)) {
+            tag |= TYPE_DOUBLE;
+            doubleValue = Double.parseDouble(value);
+        }
+
+        writer.write(tag);
+        if (index != null) {
+            writer.writeVarint(index);
+        } else {
+            writer.writeString(key);
+        }
+
+        switch (tag & TYPE_MASK) {
+            case TYPE_LONG:
+                writer.writeVarint((longValue << 1) ^ (longValue >> 63));
+                break;
+            case TYPE_DOUBLE:
+                writer.writeLong(Double.doubleToRawLongBits(doubleValue));
+                break;
+            default:
+                writer.writeString(value);
+        }
+    }
+
+    /**
+     * @param bytes to decode
+     * @return decoded parameters
+     * @throws BadRequestException if bytes is malformed
+     */
+    public Map<String, String> decode(byte[] bytes) {
+        Map<String, String> parameters = new HashMap<>();
+        decode(bytes, parameters);
+        return parameters;
+    }
+
+    /**
+     * @param bytes      to decode
+     * @param parameters to put decoded parameters into
+     * @throws BadRequestException if bytes is malformed
+     */
+    public void decode(byte[] bytes, Map<String, String> parameters) {
+        decode(bytes, (key, value) -> parameters.put(key, value.toString()));
+    }
+
+    /**
+     * @param bytes    to decode
+     * @param consumer to accept each key and value, value is String, Long or Double as encoded
+     * @throws BadRequestException if bytes is malformed
+     */
+    void decode(byte[] bytes, BiConsumer<String, Object> consumer) {
+        try {
+            Reader reader = new Reader(bytes);
+            if (reader.read() != VERSION_1) throw malformed();
+
+            long count = reader.readVarint();
+            for (long i = 0; i < count; i++) {
+                int tag = reader.read();
+
+                String key;
+                if ((tag & TAG_DICTIONARY) != 0) {
+                    long index = reader.readVarint();
+                    if (index < 0 || index >= dictionary.length) throw malformed();
+                    key = dictionary[(int) index];
+                } else {
+                    key = reader.readString();
+                }
+
+                switch (tag & TYPE_MASK) {
+                    case TYPE_STRING:
+                        consumer.accept(key, reader.readString());
+                        break;
+                    case TYPE_LONG:
+                        long zigzag = reader.readVarint();
+                        consumer.accept(key, (zigzag >>> 1) ^ -(zigzag & 1));
+                        break;
+                    case TYPE_DOUBLE:
+                        consumer.accept(key, Double.longBitsToDouble(reader.readLong()));
+                        break;
+                    default:
+                        throw malformed();
+                }
+            }
+
+            if (reader.position != bytes.length) throw malformed();
+        } catch (IndexOutOfBoundsException e) {
+            throw malformed();
+        }
+    }
+
+    static BadRequestException malformed() {
+        return new BadRequestException("The request could not be understood by the server due to malformed cursor.");
+    }
+
+    /**
+     * @param value to check
+     * @return whether value is exactly what Long.toString will produce
+     */
+    static boolean isCanonicalLong(String value) {
+        int length = value.length();
+        if (length == 0 || length > 20) return false;
+
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == length) return false;
+        // No leading zero, "-0" is not canonical either
+        if (value.charAt(start) == '0') return length == 1;
+
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+
+        int digits = length - start;
+        if (digits < 19) return true;
+        if (digits > 19) return false;
+
+        // 19 digits, compare against bound
+        String bound = start == 1 ? "9223372036854775808" : "9223372036854775807";
+        return value.substring(start).compareTo(bound) <= 0;
+    }
+
+    /**
+     * @param value to check
+     * @return whether value only contains characters that are used in Double.toString
+     */
+    private static boolean isNumeric(String value) {
+        int length = value.length();
+        if (length == 0 || length > 32) return false;
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-' && c != 'E') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param value to check
+     * @return whether value is exactly what Double.toString will produce
+     */
+    static boolean isCanonicalDouble(String value) {
+        if (!isNumeric(value)) return false;
+
+        try {
+            return Double.toString(Double.parseDouble(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private void write(int b) {
+            ensure(1);
+            buffer[position++] = (byte) b;
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void writeString(String value) {
+            int length = value.length();
+            ensure(length + 5);
+
+            // ASCII fast path, written directly into buffer
+            int start = position;
+            writeVarint(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    position = start;
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(bytes.length);
+                    ensure(bytes.length);
+                    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                    position += bytes.length;
+                    return;
+                }
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int read() {
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw malformed();
+        }
+
+        private long readLong() {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | read();
+            }
+            return result;
+        }
+
+        private String readString() {
+            long length = readVarint();
+            if (length < 0 || length > bytes.length - position) throw malformed();
+
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
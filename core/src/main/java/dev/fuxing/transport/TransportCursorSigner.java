@@ -0,0 +1,264 @@
+package dev.fuxing.transport;
+
+import dev.fuxing.err.BadRequestException;
+
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Sign or encrypt encoded cursor, so that cursor sent back by client can be trusted.
+ * <p>
+ * Signed (HMAC-SHA256, truncated to 128 bits):
+ * <pre>
+ * [mode: 1] [keyId: byte] [payload] [tag: 16 bytes]
+ * </pre>
+ * Encrypted (AES-GCM), for cursor that carry internal keys:
+ * <pre>
+ * [mode: 2] [keyId: byte] [iv: 12 bytes] [ciphertext] [tag: 16 bytes]
+ * </pre>
+ * Signature is verified in constant time, before the payload is decoded into parameters.
+ * Tampered or garbage cursor are rejected with BadRequestException.
+ * <p>
+ * Keys are provided by a {@link KeyRing}, to rotate: add a new key, make it current,
+ * remove the old key once all the cursor issued with it have expired.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-10
+ * Time: 22:04
+ */
+public final class TransportCursorSigner {
+    private static final byte MODE_SIGNED = 1;
+    private static final byte MODE_ENCRYPTED = 2;
+
+    private static final int HEADER_LENGTH = 2;
+    private static final int TAG_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+
+    private static final ThreadLocal<byte[]> MAC_BUFFER = ThreadLocal.withInitial(() -> new byte[32]);
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final KeyRing keyRing;
+    private final boolean encrypt;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Initialized Mac per thread and key id, the Mac is only initialized again if the key of the id changed.
+     */
+    private final ThreadLocal<KeyedMac[]> macs = ThreadLocal.withInitial(() -> new KeyedMac[256]);
+
+    /**
+     * @param keyRing to sign and verify with
+     * @param encrypt whether to encrypt the cursor with AES-GCM, keys must be 16, 24 or 32 bytes
+     */
+    public TransportCursorSigner(KeyRing keyRing, boolean encrypt) {
+        this.keyRing = Objects.requireNonNull(keyRing);
+        this.encrypt = encrypt;
+    }
+
+    /**
+     * @param keyRing to sign and verify with
+     * @return signer that signs with HMAC-SHA256
+     */
+    public static TransportCursorSigner signed(KeyRing keyRing) {
+        return new TransportCursorSigner(keyRing, false);
+    }
+
+    /**
+     * @param keyRing to encrypt and decrypt with
+     * @return signer that encrypts with AES-GCM
+     */
+    public static TransportCursorSigner encrypted(KeyRing keyRing) {
+        return new TransportCursorSigner(keyRing, true);
+    }
+
+    /**
+     * @param payload encoded cursor
+     * @return signed or encrypted payload
+     */
+    public byte[] sign(byte[] payload) {
+        int keyId = keyRing.currentId();
+        byte[] key = keyRing.key(keyId);
+        if (key == null) throw new IllegalStateException("KeyRing current key not found.");
+
+        try {
+            return encrypt ? encrypt(keyId, key, payload) : hmac(keyId, key, payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes signed or encrypted payload
+     * @return verified payload
+     * @throws BadRequestException if the cursor cannot be verified
+     */
+    public byte[] verify(byte[] bytes) {
+        if (bytes.length < HEADER_LENGTH + TAG_LENGTH) throw malformed();
+
+        byte[] key = keyRing.key(bytes[1] & 0xFF);
+        if (key == null) throw malformed();
+
+        try {
+            if (!encrypt && bytes[0] == MODE_SIGNED) {
+                return verifyHmac(bytes[1] & 0xFF, key, bytes);
+            }
+            if (encrypt && bytes[0] == MODE_ENCRYPTED) {
+                return decrypt(key, bytes);
+            }
+        } catch (GeneralSecurityException e) {
+            throw malformed();
+        }
+        throw malformed();
+    }
+
+    private byte[] hmac(int keyId, byte[] key, byte[] payload) throws GeneralSecurityException {
+        byte[] signed = new byte[HEADER_LENGTH + payload.length + TAG_LENGTH];
+        signed[0] = MODE_SIGNED;
+        signed[1] = (byte) keyId;
+        System.arraycopy(payload, 0, signed, HEADER_LENGTH, payload.length);
+
+        byte[] tag = mac(keyId, key, signed, HEADER_LENGTH + payload.length);
+        System.arraycopy(tag, 0, signed, HEADER_LENGTH + payload.length, TAG_LENGTH);
+        return signed;
+    }
+
+    private byte[] verifyHmac(int keyId, byte[] key, byte[] bytes) throws GeneralSecurityException {
+        int length = bytes.length - TAG_LENGTH;
+        byte[] tag = mac(keyId, key, bytes, length);
+
+        // Constant time comparison
+        int diff = 0;
+        for (int i = 0; i < TAG_LENGTH; i++) {
+            diff |= tag[i] ^ bytes[length + i];
+        }
+        if (diff != 0) throw malformed();
+
+        return Arrays.copyOfRange(bytes, HEADER_LENGTH, length);
+    }
+
+    /**
+     * @return thread local buffer containing the mac, valid until the next call
+     */
+    private byte[] mac(int keyId, byte[] key, byte[] bytes, int length) throws GeneralSecurityException {
+        KeyedMac[] macs = this.macs.get();
+        KeyedMac keyed = macs[keyId];
+        if (keyed == null || !Arrays.equals(keyed.key, key)) {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            keyed = new KeyedMac(key.clone(), mac);
+            macs[keyId] = keyed;
+        }
+
+        // doFinal reset the Mac, it is ready for the next call with the same key
+        Mac mac = keyed.mac;
+        mac.update(bytes, 0, length);
+
+        byte[] buffer = MAC_BUFFER.get();
+        mac.doFinal(buffer, 0);
+        return buffer;
+    }
+
+    private byte[] encrypt(int keyId, byte[] key, byte[] payload) throws GeneralSecurityException {
+        byte[] encrypted = new byte[HEADER_LENGTH + IV_LENGTH + payload.length + TAG_LENGTH];
+        encrypted[0] = MODE_ENCRYPTED;
+        encrypted[1] = (byte) keyId;
+
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        System.arraycopy(iv, 0, encrypted, HEADER_LENGTH, IV_LENGTH);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        cipher.updateAAD(encrypted, 0, HEADER_LENGTH);
+        cipher.doFinal(payload, 0, payload.length, encrypted, HEADER_LENGTH + IV_LENGTH);
+        return encrypted;
+    }
+
+    private static byte[] decrypt(byte[] key, byte[] bytes) throws GeneralSecurityException {
+        if (bytes.length < HEADER_LENGTH + IV_LENGTH + TAG_LENGTH) throw malformed();
+
+        GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH * 8, bytes, HEADER_LENGTH, IV_LENGTH);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), spec);
+        cipher.updateAAD(bytes, 0, HEADER_LENGTH);
+
+        int offset = HEADER_LENGTH + IV_LENGTH;
+        return cipher.doFinal(bytes, offset, bytes.length - offset);
+    }
+
+    private static BadRequestException malformed() {
+        return new BadRequestException("The request could not be understood by the server due to malformed cursor.");
+    }
+
+    /**
+     * Mac initialized with key
+     */
+    private static final class KeyedMac {
+        private final byte[] key;
+        private final Mac mac;
+
+        private KeyedMac(byte[] key, Mac mac) {
+            this.key = key;
+            this.mac = mac;
+        }
+    }
+
+    /**
+     * Pluggable key ring for signing and verifying cursor, key id is stored in the cursor as a single byte.
+     */
+    public interface KeyRing {
+        /**
+         * @return key id to sign new cursor with, 0-255
+         */
+        int currentId();
+
+        /**
+         * @param id of key
+         * @return key or {@code null} if not found (e.g. retired)
+         */
+        @Nullable
+        byte[] key(int id);
+
+        /**
+         * @param currentId id of the key to sign new cursor with
+         * @param keys      all keys that are still valid for verifying
+         * @return immutable KeyRing
+         */
+        static KeyRing of(int currentId, Map<Integer, byte[]> keys) {
+            if (currentId < 0 || currentId > 255) throw new IllegalArgumentException("currentId must be 0-255");
+            if (!keys.containsKey(currentId)) throw new IllegalArgumentException("currentId not found in keys");
+
+            byte[][] array = new byte[256][];
+            keys.forEach((id, key) -> {
+                if (id < 0 || id > 255) throw new IllegalArgumentException("key id must be 0-255");
+                array[id] = key.clone();
+            });
+
+            return new KeyRing() {
+                @Override
+                public int currentId() {
+                    return currentId;
+                }
+
+                @Override
+                public byte[] key(int id) {
+                    return array[id];
+                }
+            };
+        }
+    }
+}
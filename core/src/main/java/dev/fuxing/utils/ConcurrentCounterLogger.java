@@ -0,0 +1,223 @@
+package dev.fuxing.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread safe variant of {@link CounterLogger}, counters are striped {@link LongAdder},
+ * increment does not lock nor log in the calling thread.
+ * With an interval, a background reporter logs each counter with the increments and rate since the last report,
+ * counters reset in between are still reported with all their increments.
+ * <pre>
+ * {@code
+ * try (ConcurrentCounterLogger logger = new ConcurrentCounterLogger(this, Duration.ofSeconds(10))) {
+ *     items.parallelStream().forEach(item -> {
+ *         logger.increment("Processed");
+ *     });
+ * }
+ * }
+ * </pre>
+ * Closing stops the reporter and print all values in counter.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 14:05
+ */
+public final class ConcurrentCounterLogger implements AutoCloseable {
+    private final Logger logger;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * @param object to get the class for logging
+     */
+    public ConcurrentCounterLogger(Object object) {
+        this(LoggerFactory.getLogger(object.getClass()), null);
+    }
+
+    /**
+     * @param object   to get the class for logging
+     * @param interval to log all counters in the background, null to disable
+     */
+    public ConcurrentCounterLogger(Object object, Duration interval) {
+        this(LoggerFactory.getLogger(object.getClass()), interval);
+    }
+
+    /**
+     * @param clazz to get the class for logging
+     */
+    public ConcurrentCounterLogger(Class clazz) {
+        this(LoggerFactory.getLogger(clazz), null);
+    }
+
+    /**
+     * @param clazz    to get the class for logging
+     * @param interval to log all counters in the background, null to disable
+     */
+    public ConcurrentCounterLogger(Class clazz, Duration interval) {
+        this(LoggerFactory.getLogger(clazz), interval);
+    }
+
+    /**
+     * @param logger for logging counter
+     */
+    public ConcurrentCounterLogger(Logger logger) {
+        this(logger, null);
+    }
+
+    /**
+     * @param logger   for logging counter
+     * @param interval to log all counters in the background, null to disable
+     */
+    public ConcurrentCounterLogger(Logger logger, Duration interval) {
+        this.logger = logger;
+        if (interval == null) {
+            this.reporter = null;
+            return;
+        }
+
+        this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "counter-logger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long nanos = interval.toNanos();
+        reporter.scheduleAtFixedRate(this::report, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param name to increment by 1
+     */
+    public void increment(String name) {
+        counter(name).adder.increment();
+    }
+
+    /**
+     * @param name to increment
+     * @param by   amount
+     */
+    public void increment(String name, long by) {
+        if (by == 0) return;
+        counter(name).adder.add(by);
+    }
+
+    private Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) return counter;
+        return counters.computeIfAbsent(name, s -> new Counter());
+    }
+
+    /**
+     * @param name to get
+     * @return value or 0
+     */
+    public long get(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter.adder.sum() : 0;
+    }
+
+    /**
+     * @param consumer to consume each key, value
+     */
+    public void forEach(BiConsumer<String, Long> consumer) {
+        counters.forEach((name, counter) -> consumer.accept(name, counter.adder.sum()));
+    }
+
+    /**
+     * @return current values of all counters, sorted by name
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> map = new TreeMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Take the current values and subtract them from the counters,
+     * increments that happen concurrently are kept for the next snapshot, none are lost.
+     *
+     * @return values taken, sorted by name
+     */
+    public Map<String, Long> snapshotAndReset() {
+        Map<String, Long> map = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            synchronized (counter) {
+                long sum = counter.adder.sum();
+                counter.adder.add(-sum);
+                counter.taken += sum;
+                map.put(name, sum);
+            }
+        });
+        return map;
+    }
+
+    /**
+     * Reset counter, see {@link #snapshotAndReset()}
+     */
+    public void reset() {
+        snapshotAndReset();
+    }
+
+    /**
+     * Print all values in counter
+     */
+    public void print() {
+        snapshot().forEach((name, count) -> {
+            logger.info("Counter: {}: {}", name, count);
+        });
+    }
+
+    /**
+     * Print all values in counter with the increments and rate per second since the last report.
+     */
+    void report() {
+        long now = System.nanoTime();
+        new TreeMap<>(counters).forEach((name, counter) -> {
+            long count;
+            long delta;
+            double seconds;
+            synchronized (counter) {
+                count = counter.adder.sum();
+                // Increments taken by reset are counted toward the total
+                long total = count + counter.taken;
+                delta = total - counter.reported;
+                seconds = (now - counter.reportedAt) / 1_000_000_000.0;
+                counter.reported = total;
+                counter.reportedAt = now;
+            }
+            double rate = seconds > 0 ? delta / seconds : 0;
+            logger.info("Counter: {}: {} (+{}, {}/s)", name, count, delta, String.format("%.1f", rate));
+        });
+    }
+
+    /**
+     * Stop the background reporter and print all values in counter.
+     */
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        print();
+    }
+
+    private static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        // Guarded by the counter, increments never lock
+        private long taken;
+        private long reported;
+        private long reportedAt = System.nanoTime();
+    }
+}
@@ -0,0 +1,238 @@
+package dev.fuxing.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Thread safe ULID factory for minting many ULID concurrently, see {@link KeyUtils.ULID} for the format.
+ * <p>
+ * Each thread has its own random, seeded from a shared {@link SecureRandom},
+ * threads don't contend on a single random like {@link KeyUtils#nextULID()} does.
+ * Monotonic ULID are process wide and lock free: within the same millis the random part is incremented,
+ * when it overflows the millis is carried over, values are always strictly increasing.
+ * <pre>
+ * {@code
+ * ConcurrentULID factory = new ConcurrentULID();
+ * String id = factory.nextULID();
+ * KeyUtils.ULID.Value value = factory.nextMonotonicValue();
+ *
+ * // Batch of 1000 ULID, as most and least significant bits pairs or as chars
+ * long[] pairs = new long[2000];
+ * factory.nextValues(pairs, 0, 1000);
+ * char[] chars = new char[26 * 1000];
+ * factory.nextULIDs(chars, 0, 1000);
+ * }
+ * </pre>
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 16:20
+ */
+public final class ConcurrentULID {
+    private static final int LENGTH = 26;
+    private static final SecureRandom SEED = new SecureRandom();
+
+    private final ThreadLocal<Random> random;
+    private final AtomicReference<KeyUtils.ULID.Value> last = new AtomicReference<>(new KeyUtils.ULID.Value(0, 0));
+
+    /**
+     * ConcurrentULID with a SHA1PRNG {@link SecureRandom} per thread, seeded from a shared SecureRandom.
+     */
+    public ConcurrentULID() {
+        this(ConcurrentULID::secureRandom);
+    }
+
+    /**
+     * @param supplier of random, called once per thread
+     */
+    public ConcurrentULID(Supplier<? extends Random> supplier) {
+        Objects.requireNonNull(supplier, "supplier must not be null!");
+        this.random = ThreadLocal.withInitial(supplier);
+    }
+
+    private static Random secureRandom() {
+        byte[] seed = new byte[32];
+        synchronized (SEED) {
+            SEED.nextBytes(seed);
+        }
+
+        try {
+            // Unlike NativePRNG, SHA1PRNG does not share a global lock across instances
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            random.setSeed(seed);
+            return random;
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom(seed);
+        }
+    }
+
+    /**
+     * @return ULID in String
+     */
+    public String nextULID() {
+        return nextULID(System.currentTimeMillis());
+    }
+
+    /**
+     * @param timestamp millis of ULID
+     * @return ULID in String
+     */
+    public String nextULID(long timestamp) {
+        return KeyUtils.ULID.internalUIDString(timestamp, random.get());
+    }
+
+    /**
+     * @return ULID Value
+     */
+    public KeyUtils.ULID.Value nextValue() {
+        return nextValue(System.currentTimeMillis());
+    }
+
+    /**
+     * @param timestamp millis of ULID
+     * @return ULID Value
+     */
+    public KeyUtils.ULID.Value nextValue(long timestamp) {
+        return KeyUtils.ULID.internalNextValue(timestamp, random.get());
+    }
+
+    /**
+     * @param pairs  to fill with most and least significant bits, 2 long per ULID
+     * @param offset of ULID, pairs[offset * 2] is the first most significant bits written
+     * @param count  of ULID to fill
+     */
+    public void nextValues(long[] pairs, int offset, int count) {
+        checkRange(pairs.length, 2, offset, count);
+        long timestamp = System.currentTimeMillis();
+        checkTimestamp(timestamp);
+
+        Random random = this.random.get();
+        long msbTimestamp = timestamp << 16;
+        for (int i = offset * 2, end = (offset + count) * 2; i < end; i += 2) {
+            pairs[i] = msbTimestamp | (random.nextLong() & 0xFFFFL);
+            pairs[i + 1] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param buffer to fill with 26 chars per ULID
+     * @param offset of ULID, buffer[offset * 26] is the first char written
+     * @param count  of ULID to fill
+     */
+    public void nextULIDs(char[] buffer, int offset, int count) {
+        checkRange(buffer.length, LENGTH, offset, count);
+        long timestamp = System.currentTimeMillis();
+        checkTimestamp(timestamp);
+
+        Random random = this.random.get();
+        for (int i = offset * LENGTH, end = (offset + count) * LENGTH; i < end; i += LENGTH) {
+            KeyUtils.ULID.internalWriteCrockford(buffer, timestamp, 10, i);
+            KeyUtils.ULID.internalWriteCrockford(buffer, random.nextLong(), 8, i + 10);
+            KeyUtils.ULID.internalWriteCrockford(buffer, random.nextLong(), 8, i + 18);
+        }
+    }
+
+    /**
+     * @return monotonic ULID in String, greater than all monotonic ULID previously created by this factory
+     */
+    public String nextMonotonicULID() {
+        return nextMonotonicValue().toString();
+    }
+
+    /**
+     * @return monotonic ULID Value, greater than all monotonic ULID previously created by this factory
+     */
+    public KeyUtils.ULID.Value nextMonotonicValue() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserve count consecutive monotonic ULID with a single compare and set.
+     *
+     * @param pairs  to fill with most and least significant bits, 2 long per ULID
+     * @param offset of ULID, pairs[offset * 2] is the first most significant bits written
+     * @param count  of ULID to fill
+     */
+    public void nextMonotonicValues(long[] pairs, int offset, int count) {
+        checkRange(pairs.length, 2, offset, count);
+        if (count == 0) return;
+
+        KeyUtils.ULID.Value first = reserve(count);
+        long msb = first.getMostSignificantBits();
+        long lsb = first.getLeastSignificantBits();
+        for (int i = offset * 2, end = (offset + count) * 2; i < end; i += 2) {
+            pairs[i] = msb;
+            pairs[i + 1] = lsb;
+            if (++lsb == 0) msb++;
+        }
+    }
+
+    /**
+     * Reserve count consecutive monotonic ULID with a single compare and set.
+     *
+     * @param buffer to fill with 26 chars per ULID
+     * @param offset of ULID, buffer[offset * 26] is the first char written
+     * @param count  of ULID to fill
+     */
+    public void nextMonotonicULIDs(char[] buffer, int offset, int count) {
+        checkRange(buffer.length, LENGTH, offset, count);
+        if (count == 0) return;
+
+        KeyUtils.ULID.Value first = reserve(count);
+        long msb = first.getMostSignificantBits();
+        long lsb = first.getLeastSignificantBits();
+        for (int i = offset * LENGTH, end = (offset + count) * LENGTH; i < end; i += LENGTH) {
+            KeyUtils.ULID.write(msb, lsb, buffer, i);
+            if (++lsb == 0) msb++;
+        }
+    }
+
+    /**
+     * Random part is incremented as a 80 bit number, overflow carries into the timestamp.
+     * A new random value is only taken when the clock moved past the last reserved value,
+     * the clock moving backwards does not break monotonicity.
+     *
+     * @param count of consecutive value to reserve
+     * @return first value reserved
+     */
+    private KeyUtils.ULID.Value reserve(int count) {
+        Random random = this.random.get();
+        while (true) {
+            KeyUtils.ULID.Value previous = last.get();
+            long timestamp = System.currentTimeMillis();
+
+            long msb;
+            long lsb;
+            if (timestamp > previous.timestamp()) {
+                checkTimestamp(timestamp);
+                msb = (timestamp << 16) | (random.nextLong() & 0xFFFFL);
+                lsb = random.nextLong();
+            } else {
+                msb = previous.getMostSignificantBits();
+                lsb = previous.getLeastSignificantBits() + 1;
+                if (lsb == 0) msb++;
+            }
+
+            long endLsb = lsb + (count - 1);
+            long endMsb = Long.compareUnsigned(endLsb, lsb) < 0 ? msb + 1 : msb;
+            if (last.compareAndSet(previous, new KeyUtils.ULID.Value(endMsb, endLsb))) {
+                return new KeyUtils.ULID.Value(msb, lsb);
+            }
+        }
+    }
+
+    private static void checkRange(int length, int size, int offset, int count) {
+        if (offset < 0 || count < 0 || ((long) offset + count) * size > length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", count: " + count + ", length: " + length);
+        }
+    }
+
+    private static void checkTimestamp(long timestamp) {
+        if ((timestamp & 0xFFFF_0000_0000_0000L) != 0) {
+            throw new IllegalArgumentException("ULID does not support timestamps after +10889-08-02T05:31:50.655Z!");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package dev.fuxing.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Fast non-cryptographic hashing, for ETag, dedup and cache keys.
+ * Never use it for anything that requires collision resistance against an adversary, use SHA-256 instead.
+ * <pre>
+ * {@code
+ * long hash = HashUtils.xxHash64(bytes);
+ * }
+ * </pre>
+ * Created by: Fuxing
+ * Date: 2020-06-18
+ * Time: 19:52
+ */
+public final class HashUtils {
+    private HashUtils() { /**/ }
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * @param bytes to hash
+     * @return XXH64 with seed 0
+     */
+    public static long xxHash64(byte[] bytes) {
+        return xxHash64(bytes, 0, bytes.length, 0);
+    }
+
+    /**
+     * XXH64 as specified in https://github.com/Cyan4973/xxHash, no allocation.
+     *
+     * @param bytes  to hash
+     * @param offset start of bytes to hash
+     * @param length number of bytes to hash
+     * @param seed   of hash
+     * @return XXH64
+     */
+    public static long xxHash64(byte[] bytes, int offset, int length, long seed) {
+        int end = offset + length;
+        int i = offset;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+
+            int limit = end - 32;
+            do {
+                v1 = round(v1, (long) LONG.get(bytes, i));
+                v2 = round(v2, (long) LONG.get(bytes, i + 8));
+                v3 = round(v3, (long) LONG.get(bytes, i + 16));
+                v4 = round(v4, (long) LONG.get(bytes, i + 24));
+                i += 32;
+            } while (i <= limit);
+
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = seed + PRIME64_5;
+        }
+
+        hash += length;
+
+        while (i + 8 <= end) {
+            hash ^= round(0, (long) LONG.get(bytes, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            i += 8;
+        }
+
+        if (i + 4 <= end) {
+            hash ^= ((int) INT.get(bytes, i) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            i += 4;
+        }
+
+        while (i < end) {
+            hash ^= (bytes[i] & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            i++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long merge(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+}
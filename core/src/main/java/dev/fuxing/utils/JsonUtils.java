@@ -1,18 +1,25 @@
 package dev.fuxing.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.type.CollectionType;
-import com.fasterxml.jackson.databind.type.MapType;
 import dev.fuxing.err.JsonException;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -20,6 +27,9 @@ import java.util.function.Function;
  * JsonUtils is basically a singleton ObjectMapper that wraps all JSON Error into {@code JsonException}.
  * There are also a bunch of helper method for parsing collections.
  * <p>
+ * ObjectReader, ObjectWriter and collection types are cached per class, root (de)serializer are only looked up once.
+ * Configure {@link #objectMapper} with {@link #configure(Consumer)}, the caches are invalidated once configured.
+ * <p>
  * Created By: Fuxing Loh
  * Date: 16/6/2017
  * Time: 3:48 PM
@@ -32,6 +42,159 @@ public final class JsonUtils {
      */
     public static final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, JavaType> LIST_TYPES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, JavaType> SET_TYPES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, JavaType>> MAP_TYPES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<JavaType, ObjectReader> TYPE_READERS = new ConcurrentHashMap<>();
+    private static volatile ObjectWriter streamWriter;
+
+    /**
+     * Mapper profiles for {@link #createMapper(Profile)}.
+     */
+    public enum Profile {
+        /**
+         * Same as {@link #objectMapper}, Jackson defaults.
+         */
+        DEFAULT,
+
+        /**
+         * Unknown properties and empty beans don't fail, no flush after each value.
+         * Afterburner bytecode acceleration is registered if it is on the classpath.
+         */
+        FAST,
+    }
+
+    /**
+     * @param profile of mapper
+     * @return newly created ObjectMapper configured with profile
+     */
+    public static ObjectMapper createMapper(Profile profile) {
+        ObjectMapper mapper = new ObjectMapper();
+        if (profile == Profile.FAST) {
+            mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+            mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            registerModule(mapper, "com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+        }
+        return mapper;
+    }
+
+    /**
+     * Register optional module if it is on the classpath.
+     */
+    private static void registerModule(ObjectMapper mapper, String className) {
+        try {
+            Class<?> clazz = Class.forName(className);
+            mapper.registerModule((Module) clazz.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+            // Not on the classpath
+        }
+    }
+
+    /**
+     * Configure {@link #objectMapper}, e.g. register modules, then invalidate all cached readers, writers and types.
+     * Readers and writers obtained before keep the previous configuration, they should not be held statically.
+     * <pre>
+     * {@code
+     * JsonUtils.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+     * }
+     * </pre>
+     *
+     * @param consumer to configure objectMapper with
+     */
+    public static synchronized void configure(Consumer<ObjectMapper> consumer) {
+        consumer.accept(objectMapper);
+
+        READERS.clear();
+        WRITERS.clear();
+        LIST_TYPES.clear();
+        SET_TYPES.clear();
+        MAP_TYPES.clear();
+        TYPE_READERS.clear();
+        streamWriter = null;
+    }
+
+    /**
+     * @return cached ObjectWriter of {@link #objectMapper} for streaming with a JsonGenerator,
+     * flushing is controlled by the caller instead of every value written
+     */
+    public static ObjectWriter streamWriter() {
+        ObjectWriter writer = streamWriter;
+        if (writer == null) {
+            writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            streamWriter = writer;
+        }
+        return writer;
+    }
+
+    /**
+     * @param clazz to read
+     * @return cached ObjectReader of {@link #objectMapper} for clazz
+     */
+    public static ObjectReader reader(Class<?> clazz) {
+        ObjectReader reader = READERS.get(clazz);
+        if (reader != null) return reader;
+        return READERS.computeIfAbsent(clazz, objectMapper::readerFor);
+    }
+
+    /**
+     * @param type to read
+     * @return cached ObjectReader of {@link #objectMapper} for type
+     */
+    public static ObjectReader reader(JavaType type) {
+        ObjectReader reader = TYPE_READERS.get(type);
+        if (reader != null) return reader;
+        return TYPE_READERS.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    /**
+     * @param clazz to write, serialized as clazz even if value is a subclass
+     * @return cached ObjectWriter of {@link #objectMapper} for clazz
+     */
+    public static ObjectWriter writer(Class<?> clazz) {
+        ObjectWriter writer = WRITERS.get(clazz);
+        if (writer != null) return writer;
+        return WRITERS.computeIfAbsent(clazz, objectMapper::writerFor);
+    }
+
+    /**
+     * @param clazz of element
+     * @return cached List type of element clazz
+     */
+    public static JavaType listType(Class<?> clazz) {
+        JavaType type = LIST_TYPES.get(clazz);
+        if (type != null) return type;
+        return LIST_TYPES.computeIfAbsent(clazz, c -> objectMapper.getTypeFactory().constructCollectionType(List.class, c));
+    }
+
+    /**
+     * @param clazz of element
+     * @return cached Set type of element clazz
+     */
+    public static JavaType setType(Class<?> clazz) {
+        JavaType type = SET_TYPES.get(clazz);
+        if (type != null) return type;
+        return SET_TYPES.computeIfAbsent(clazz, c -> objectMapper.getTypeFactory().constructCollectionType(Set.class, c));
+    }
+
+    /**
+     * @param keyClass   of map
+     * @param valueClass of map
+     * @return cached HashMap type of key and value class
+     */
+    public static JavaType mapType(Class<?> keyClass, Class<?> valueClass) {
+        ConcurrentMap<Class<?>, JavaType> types = MAP_TYPES.get(keyClass);
+        if (types == null) {
+            types = MAP_TYPES.computeIfAbsent(keyClass, c -> new ConcurrentHashMap<>());
+        }
+
+        JavaType type = types.get(valueClass);
+        if (type != null) return type;
+        return types.computeIfAbsent(valueClass, c -> objectMapper.getTypeFactory().constructMapType(HashMap.class, keyClass, c));
+    }
+
     /**
      * It's the same as
      * <pre>
@@ -69,7 +232,7 @@ public final class JsonUtils {
      */
     public static <T> T merge(T object, JsonNode patch) {
         try {
-            return objectMapper.readerForUpdating(object).readValue(patch);
+            return reader(object.getClass()).withValueToUpdate(object).readValue(patch);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -84,7 +247,7 @@ public final class JsonUtils {
      */
     public static JsonNode merge(JsonNode object, JsonNode patch) {
         try {
-            return objectMapper.readerForUpdating(object).readValue(patch);
+            return reader(object.getClass()).withValueToUpdate(object).readValue(patch);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -152,8 +315,9 @@ public final class JsonUtils {
      * @return JSON String
      */
     public static String toString(Object object) {
+        if (object == null) return "null";
         try {
-            return objectMapper.writeValueAsString(object);
+            return writer(object.getClass()).writeValueAsString(object);
         } catch (JsonProcessingException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -189,7 +353,7 @@ public final class JsonUtils {
 
     public static <T> T bytesToObject(byte[] bytes, Class<T> clazz) {
         try {
-            return objectMapper.readValue(bytes, clazz);
+            return reader(clazz).readValue(bytes);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -225,10 +389,15 @@ public final class JsonUtils {
         return toObject(valueToTree(object), clazz);
     }
 
+    @SuppressWarnings("unchecked")
     public static <T> T toObject(JsonNode node, Class<T> clazz) {
         if (node == null) return null;
+        // Same as ObjectMapper.treeToValue, node is returned as is if it's already of clazz
+        if (TreeNode.class.isAssignableFrom(clazz) && clazz.isAssignableFrom(node.getClass())) {
+            return (T) node;
+        }
         try {
-            return objectMapper.treeToValue(node, clazz);
+            return reader(clazz).readValue(node);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -245,7 +414,7 @@ public final class JsonUtils {
     public static <T> T toObject(String value, Class<T> clazz) {
         if (value == null) return null;
         try {
-            return objectMapper.readValue(value, clazz);
+            return reader(clazz).readValue(value);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -255,7 +424,7 @@ public final class JsonUtils {
     public static <T> T toObject(byte[] value, Class<T> clazz) {
         if (value == null) return null;
         try {
-            return objectMapper.readValue(value, clazz);
+            return reader(clazz).readValue(value);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -263,8 +432,7 @@ public final class JsonUtils {
 
     public static <T extends R, R> List<R> toList(JsonNode nodes, Class<T> clazz) {
         try {
-            CollectionType type = objectMapper.getTypeFactory().constructCollectionType(List.class, clazz);
-            return objectMapper.convertValue(nodes, type);
+            return objectMapper.convertValue(nodes, listType(clazz));
         } catch (IllegalArgumentException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -272,8 +440,7 @@ public final class JsonUtils {
 
     public static <T extends R, R> List<R> toList(String json, Class<T> clazz) {
         try {
-            CollectionType type = objectMapper.getTypeFactory().constructCollectionType(List.class, clazz);
-            return objectMapper.readValue(json, type);
+            return reader(listType(clazz)).readValue(json);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -289,8 +456,7 @@ public final class JsonUtils {
 
     public static <T extends R, R> Set<R> toSet(JsonNode nodes, Class<T> clazz) {
         try {
-            CollectionType type = objectMapper.getTypeFactory().constructCollectionType(Set.class, clazz);
-            return objectMapper.convertValue(nodes, type);
+            return objectMapper.convertValue(nodes, setType(clazz));
         } catch (IllegalArgumentException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -298,8 +464,7 @@ public final class JsonUtils {
 
     public static <T extends R, R> Set<R> toSet(String json, Class<T> clazz) {
         try {
-            CollectionType type = objectMapper.getTypeFactory().constructCollectionType(Set.class, clazz);
-            return objectMapper.readValue(json, type);
+            return reader(setType(clazz)).readValue(json);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -307,8 +472,7 @@ public final class JsonUtils {
 
     public static <K, V> Map<K, V> toMap(JsonNode nodes, Class<K> keyClass, Class<V> valueClass) {
         try {
-            MapType type = objectMapper.getTypeFactory().constructMapType(HashMap.class, keyClass, valueClass);
-            return objectMapper.convertValue(nodes, type);
+            return objectMapper.convertValue(nodes, mapType(keyClass, valueClass));
         } catch (IllegalArgumentException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -316,8 +480,7 @@ public final class JsonUtils {
 
     public static <K, V> Map<K, V> toMap(byte[] bytes, Class<K> keyClass, Class<V> valueClass) {
         try {
-            MapType type = objectMapper.getTypeFactory().constructMapType(HashMap.class, keyClass, valueClass);
-            return objectMapper.readValue(bytes, type);
+            return reader(mapType(keyClass, valueClass)).readValue(bytes);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -325,8 +488,7 @@ public final class JsonUtils {
 
     public static <K, V> Map<K, V> toMap(String json, Class<K> keyClass, Class<V> valueClass) {
         try {
-            MapType type = objectMapper.getTypeFactory().constructMapType(HashMap.class, keyClass, valueClass);
-            return objectMapper.readValue(json, type);
+            return reader(mapType(keyClass, valueClass)).readValue(json);
         } catch (IOException e) {
             throw new JsonException("Your JSON is malformed.", e);
         }
@@ -1,15 +1,17 @@
 package dev.fuxing.utils;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This utility it created to generate key id that are URL Safe.
@@ -30,6 +32,8 @@ import java.util.regex.Pattern;
  * KeyUtils.sha256Base64("Some Text");
  * // SHA 256 Protocol Trimmed Base 64 URL Safe
  * KeyUtils.sha256UrlBase64("https://fuxing.dev/blog/i-am-trapped");
+ * // Non-cryptographic 64 bit key hash for dedup
+ * KeyUtils.keyHashUrl("https://fuxing.dev/blog/i-am-trapped");
  *
  * // Universally unique Lexicographically sortable IDentifiers
  * // URL Safe, Sortable, Base 32
@@ -42,11 +46,18 @@ import java.util.regex.Pattern;
  */
 @SuppressWarnings("SpellCheckingInspection")
 public final class KeyUtils {
-    private static final Pattern HTTP_PATTERN = Pattern.compile("^https?://", Pattern.CASE_INSENSITIVE);
     private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
 
+    private static final int SHA_256_LENGTH = 32;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(DigestUtils::getSha256Digest);
+
     private static final ULID ULID_INSTANCE = new ULID();
 
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+    private static final byte[] CROCKFORD_INVALID = new byte[128];
+    private static final byte[][] UUID_INVALID = new byte[36][128];
+
     public static final char[] CROCKFORD_CHARCTERS = {
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
             'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k', 'm',
@@ -91,6 +102,27 @@ public final class KeyUtils {
      */
     public static final String ULID_MIN = "00000000000000000000000000";
 
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) HEX_VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+
+        Arrays.fill(CROCKFORD_INVALID, (byte) 1);
+        for (char c : CROCKFORD_CHARCTERS) CROCKFORD_INVALID[c] = 0;
+
+        for (int i = 0; i < 36; i++) {
+            Arrays.fill(UUID_INVALID[i], (byte) 1);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                UUID_INVALID[i]['-'] = 0;
+            } else {
+                for (char c : HEX_CHARS) UUID_INVALID[i][c] = 0;
+            }
+        }
+    }
+
     private KeyUtils() {/**/}
 
     /**
@@ -113,7 +145,12 @@ public final class KeyUtils {
         if (!validateId(id)) {
             throw new IllegalStateException("id is not a valid crockford character.");
         }
-        return RandomStringUtils.random(count, CROCKFORD_CHARCTERS) + id;
+        checkCount(count);
+
+        char[] chars = new char[count + 1];
+        writeL(chars, 0, count);
+        chars[count] = id;
+        return new String(chars);
     }
 
     /**
@@ -121,10 +158,7 @@ public final class KeyUtils {
      * @return whether id is valid
      */
     private static boolean validateId(char crockford) {
-        for (char crock : CROCKFORD_CHARCTERS) {
-            if (crock == crockford) return true;
-        }
-        return false;
+        return crockford < 128 && CROCKFORD_INVALID[crockford] == 0;
     }
 
     /**
@@ -132,7 +166,37 @@ public final class KeyUtils {
      * @return random crockford x count
      */
     public static String nextL(int count) {
-        return RandomStringUtils.random(count, CROCKFORD_CHARCTERS);
+        checkCount(count);
+
+        char[] chars = new char[count];
+        writeL(chars, 0, count);
+        return new String(chars);
+    }
+
+    /**
+     * Write random crockford into buffer, each random long is split into 12 chars of 5 bits.
+     * Uses {@link ThreadLocalRandom}, not for secrets.
+     *
+     * @param buffer to write into
+     * @param offset of buffer to start writing
+     * @param count  of random crockford to write
+     */
+    public static void writeL(char[] buffer, int offset, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int end = offset + count;
+        while (offset < end) {
+            long bits = random.nextLong();
+            for (int i = Math.min(12, end - offset); i > 0; i--) {
+                buffer[offset++] = CROCKFORD_CHARCTERS[(int) bits & 0x1F];
+                bits >>>= 5;
+            }
+        }
+    }
+
+    private static void checkCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Requested random string length " + count + " is less than 0.");
+        }
     }
 
     /**
@@ -193,7 +257,9 @@ public final class KeyUtils {
      * @return UUID
      */
     public static String createUUID(long left, long right) {
-        return new UUID(left, right).toString();
+        char[] buffer = new char[36];
+        writeUUID(left, right, buffer, 0);
+        return new String(buffer);
     }
 
     /**
@@ -206,16 +272,8 @@ public final class KeyUtils {
      * @return 128 bit UUID
      */
     public static String createUUID(int i1, int i2, int i3, int i4) {
-        ByteBuffer buffer = ByteBuffer.allocate(16)
-                .putInt(i1)
-                .putInt(i2)
-                .putInt(i3)
-                .putInt(i4);
-
-        buffer.position(0);
-
-        long left = buffer.getLong();
-        long right = buffer.getLong();
+        long left = ((long) i1 << 32) | (i2 & 0xFFFF_FFFFL);
+        long right = ((long) i3 << 32) | (i4 & 0xFFFF_FFFFL);
         return createUUID(left, right);
     }
 
@@ -226,14 +284,158 @@ public final class KeyUtils {
     public static String createUUID(byte[] bytes) {
         if (bytes.length != 16) throw new IllegalArgumentException("bytes.length must be 16");
 
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        buffer.position(0);
-
-        long left = buffer.getLong();
-        long right = buffer.getLong();
+        long left = 0;
+        long right = 0;
+        for (int i = 0; i < 8; i++) {
+            left = (left << 8) | (bytes[i] & 0xFF);
+            right = (right << 8) | (bytes[i + 8] & 0xFF);
+        }
         return createUUID(left, right);
     }
 
+    /**
+     * Write UUID in lowercase hex, 36 chars with dashes, into buffer without allocating.
+     *
+     * @param left   MostSignificantBits
+     * @param right  LeastSignificantBits
+     * @param buffer to write into
+     * @param offset of buffer to start writing 36 chars
+     */
+    public static void writeUUID(long left, long right, char[] buffer, int offset) {
+        writeHex(buffer, offset, left >>> 32, 8);
+        buffer[offset + 8] = '-';
+        writeHex(buffer, offset + 9, left >>> 16, 4);
+        buffer[offset + 13] = '-';
+        writeHex(buffer, offset + 14, left, 4);
+        buffer[offset + 18] = '-';
+        writeHex(buffer, offset + 19, right >>> 48, 4);
+        buffer[offset + 23] = '-';
+        writeHex(buffer, offset + 24, right, 12);
+    }
+
+    /**
+     * Write UUID in lowercase hex ASCII, 36 bytes with dashes, into buffer without allocating.
+     *
+     * @param left   MostSignificantBits
+     * @param right  LeastSignificantBits
+     * @param buffer to write into
+     * @param offset of buffer to start writing 36 bytes
+     */
+    public static void writeUUID(long left, long right, byte[] buffer, int offset) {
+        writeHex(buffer, offset, left >>> 32, 8);
+        buffer[offset + 8] = '-';
+        writeHex(buffer, offset + 9, left >>> 16, 4);
+        buffer[offset + 13] = '-';
+        writeHex(buffer, offset + 14, left, 4);
+        buffer[offset + 18] = '-';
+        writeHex(buffer, offset + 19, right >>> 48, 4);
+        buffer[offset + 23] = '-';
+        writeHex(buffer, offset + 24, right, 12);
+    }
+
+    private static void writeHex(char[] buffer, int offset, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            buffer[offset + i] = HEX_CHARS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    private static void writeHex(byte[] buffer, int offset, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            buffer[offset + i] = (byte) HEX_CHARS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * @param uuid 36 chars UUID, upper or lower case hex
+     * @return MostSignificantBits of UUID
+     * @throws IllegalArgumentException if not a valid UUID
+     */
+    public static long parseUUIDMostSignificantBits(CharSequence uuid) {
+        checkUUID(uuid);
+        return (parseHex(uuid, 0, 8) << 32) | (parseHex(uuid, 9, 13) << 16) | parseHex(uuid, 14, 18);
+    }
+
+    /**
+     * @param uuid 36 chars UUID, upper or lower case hex
+     * @return LeastSignificantBits of UUID
+     * @throws IllegalArgumentException if not a valid UUID
+     */
+    public static long parseUUIDLeastSignificantBits(CharSequence uuid) {
+        checkUUID(uuid);
+        return (parseHex(uuid, 19, 23) << 48) | parseHex(uuid, 24, 36);
+    }
+
+    private static void checkUUID(CharSequence uuid) {
+        if (uuid.length() != 36 || uuid.charAt(8) != '-' || uuid.charAt(13) != '-'
+                || uuid.charAt(18) != '-' || uuid.charAt(23) != '-') {
+            throw new IllegalArgumentException("uuid must be 36 chars with dashes.");
+        }
+    }
+
+    private static long parseHex(CharSequence input, int start, int end) {
+        long result = 0;
+        int invalid = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            int value = c < 128 ? HEX_VALUES[c] : -1;
+            invalid |= value;
+            result = (result << 4) | (value & 0xF);
+        }
+        if (invalid < 0) {
+            throw new IllegalArgumentException("Illegal hex character in: " + input);
+        }
+        return result;
+    }
+
+    /**
+     * Regex free equivalent of {@link #UUID_REGEX}, lowercase only.
+     *
+     * @param text to validate
+     * @return whether text is a lowercase UUID
+     */
+    public static boolean isUUID(CharSequence text) {
+        if (text == null || text.length() != 36) return false;
+
+        int invalid = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = text.charAt(i);
+            // Dash positions must be '-', every other position lowercase hex
+            invalid |= c < 128 ? UUID_INVALID[i][c] : 1;
+        }
+        return invalid == 0;
+    }
+
+    /**
+     * Regex free equivalent of {@link #ULID_REGEX}, lowercase only.
+     *
+     * @param text to validate
+     * @return whether text is a lowercase ULID
+     */
+    public static boolean isULID(CharSequence text) {
+        return text != null && text.length() == 26 && isCrockford(text);
+    }
+
+    /**
+     * Regex free equivalent of {@link #L12_REGEX}, lowercase only.
+     *
+     * @param text to validate
+     * @return whether text is a lowercase 12 chars crockford
+     */
+    public static boolean isL12(CharSequence text) {
+        return text != null && text.length() == 12 && isCrockford(text);
+    }
+
+    private static boolean isCrockford(CharSequence text) {
+        int invalid = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            invalid |= c < 128 ? CROCKFORD_INVALID[c] : 1;
+        }
+        return invalid == 0;
+    }
+
     /**
      * @return random uuid4 in String Base64 Url Safe
      */
@@ -250,7 +452,7 @@ public final class KeyUtils {
      * @return sha 256 in hex
      */
     public static String sha256(String text) {
-        return DigestUtils.sha256Hex(text);
+        return hex(sha256Digest().digest(text.getBytes(StandardCharsets.UTF_8)));
     }
 
     /**
@@ -258,7 +460,7 @@ public final class KeyUtils {
      * @return sha 256 in base 64
      */
     public static String sha256Base64(String text) {
-        return ENCODER.encodeToString(DigestUtils.sha256(text));
+        return ENCODER.encodeToString(sha256Digest().digest(text.getBytes(StandardCharsets.UTF_8)));
     }
 
     /**
@@ -266,8 +468,7 @@ public final class KeyUtils {
      * @return sha 256 in hex
      */
     public static String sha256Url(String url) {
-        String trimmed = HTTP_PATTERN.matcher(url).replaceFirst("");
-        return DigestUtils.sha256Hex(trimmed);
+        return sha256(trimProtocol(url));
     }
 
     /**
@@ -275,8 +476,154 @@ public final class KeyUtils {
      * @return sha 256 in base 64
      */
     public static String sha256Base64Url(String url) {
-        String trimmed = HTTP_PATTERN.matcher(url).replaceFirst("");
-        return ENCODER.encodeToString(DigestUtils.sha256(trimmed));
+        return sha256Base64(trimProtocol(url));
+    }
+
+    /**
+     * @param urls to sha 256, with protocol trimmed
+     * @return sha 256 in hex, in the same order as urls
+     */
+    public static List<String> sha256Urls(Collection<String> urls) {
+        MessageDigest digest = sha256Digest();
+        byte[] hash = new byte[SHA_256_LENGTH];
+        char[] hex = new char[SHA_256_LENGTH * 2];
+
+        List<String> list = new ArrayList<>(urls.size());
+        try {
+            for (String url : urls) {
+                digest.update(trimProtocol(url).getBytes(StandardCharsets.UTF_8));
+                digest(digest, hash, 0);
+                list.add(new String(hex(hash, 0, hex)));
+            }
+        } finally {
+            digest.reset();
+        }
+        return list;
+    }
+
+    /**
+     * @param input     to sha 256
+     * @param offset    of input
+     * @param length    of input
+     * @param out       to write the 32 bytes digest into
+     * @param outOffset of out
+     */
+    public static void sha256(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        checkOut(out, outOffset, 1);
+
+        MessageDigest digest = sha256Digest();
+        try {
+            digest.update(input, offset, length);
+            digest(digest, out, outOffset);
+        } finally {
+            digest.reset();
+        }
+    }
+
+    /**
+     * @param input     to sha 256, from position to limit, position is moved to limit
+     * @param out       to write the 32 bytes digest into
+     * @param outOffset of out
+     */
+    public static void sha256(ByteBuffer input, byte[] out, int outOffset) {
+        checkOut(out, outOffset, 1);
+
+        MessageDigest digest = sha256Digest();
+        try {
+            digest.update(input);
+            digest(digest, out, outOffset);
+        } finally {
+            digest.reset();
+        }
+    }
+
+    /**
+     * @param inputs    to sha 256 each
+     * @param out       to write 32 bytes digest per input into, consecutively
+     * @param outOffset of out
+     */
+    public static void sha256(byte[][] inputs, byte[] out, int outOffset) {
+        checkOut(out, outOffset, inputs.length);
+
+        MessageDigest digest = sha256Digest();
+        try {
+            for (byte[] input : inputs) {
+                digest.update(input);
+                digest(digest, out, outOffset);
+                outOffset += SHA_256_LENGTH;
+            }
+        } finally {
+            digest.reset();
+        }
+    }
+
+    /**
+     * Fast non-cryptographic 64 bit key hash for dedup, see {@link HashUtils#xxHash64(byte[])}.
+     * Never use it for anything that requires collision resistance against an adversary, use sha256 instead.
+     *
+     * @param text to hash
+     * @return xxHash64 of UTF-8 bytes
+     */
+    public static long keyHash(String text) {
+        return HashUtils.xxHash64(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param url to hash, with protocol trimmed
+     * @return xxHash64 of UTF-8 bytes, see {@link #keyHash(String)}
+     */
+    public static long keyHashUrl(String url) {
+        return keyHash(trimProtocol(url));
+    }
+
+    /**
+     * Equivalent of removing "^https?://" case insensitive.
+     */
+    private static String trimProtocol(String url) {
+        if (url.regionMatches(true, 0, "http://", 0, 7)) return url.substring(7);
+        if (url.regionMatches(true, 0, "https://", 0, 8)) return url.substring(8);
+        return url;
+    }
+
+    /**
+     * @return SHA-256 digest of the current thread, must be reset in finally by the caller
+     */
+    private static MessageDigest sha256Digest() {
+        return SHA_256.get();
+    }
+
+    /**
+     * Validated before the digest is updated, a failed digest must not leave input in the thread digest.
+     *
+     * @param out       to write the digests into
+     * @param outOffset of out
+     * @param count     of 32 bytes digest
+     */
+    private static void checkOut(byte[] out, int outOffset, int count) {
+        if (outOffset < 0 || outOffset + (long) count * SHA_256_LENGTH > out.length) {
+            throw new IllegalArgumentException("out must have 32 bytes per input from outOffset.");
+        }
+    }
+
+    private static void digest(MessageDigest digest, byte[] out, int outOffset) {
+        try {
+            digest.digest(out, outOffset, SHA_256_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("out must have 32 bytes from outOffset.", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return new String(hex(bytes, 0, new char[bytes.length * 2]));
+    }
+
+    private static char[] hex(byte[] bytes, int offset, char[] out) {
+        for (int i = 0; i < out.length; i += 2) {
+            int b = bytes[offset++];
+            out[i] = HEX_CHARS[(b >> 4) & 0xF];
+            out[i + 1] = HEX_CHARS[b & 0xF];
+        }
+        return out;
     }
 
     /**
@@ -287,10 +634,29 @@ public final class KeyUtils {
     public static String generateSlug(String text, int max) {
         if (StringUtils.isBlank(text)) return null;
 
-        text = text.toLowerCase();
-        text = text.replace(" ", "-");
-        text = text.replaceAll("[^a-z0-9-]", "");
-        return StringUtils.substring(text, 0, max);
+        // Single pass: lowercase, space to dash, drop anything not [a-z0-9-], stop at max
+        int limit = max < 0 ? text.length() : Math.min(max, text.length());
+        char[] slug = new char[limit];
+        int length = 0;
+        for (int i = 0, size = text.length(); i < size && length < limit; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            } else if (c == ' ') {
+                c = '-';
+            } else if (c >= 128) {
+                // e.g. KELVIN SIGN lowercase to 'k'
+                c = Character.toLowerCase(c);
+            }
+
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                slug[length++] = c;
+            }
+        }
+
+        String result = new String(slug, 0, length);
+        // Negative max is counted from the end, as StringUtils.substring
+        return max < 0 ? StringUtils.substring(result, 0, max) : result;
     }
 
     /**
@@ -439,23 +805,94 @@ public final class KeyUtils {
 
         public static Value parseULID(String ulidString) {
             Objects.requireNonNull(ulidString, "ulidString must not be null!");
-            if (ulidString.length() != 26) {
-                throw new IllegalArgumentException("ulidString must be exactly 26 chars long.");
+            return new Value(parseMostSignificantBits(ulidString), parseLeastSignificantBits(ulidString));
+        }
+
+        /**
+         * @param ulid 26 chars ULID, case insensitive
+         * @return most significant 64 bits of ULID, without creating a Value
+         */
+        public static long parseMostSignificantBits(CharSequence ulid) {
+            checkLength(ulid.length());
+            long time = internalParseCrockford(ulid, 0, 10);
+            if ((time & TIMESTAMP_OVERFLOW_MASK) != 0) {
+                throw new IllegalArgumentException("ulidString must not exceed '7ZZZZZZZZZZZZZZZZZZZZZZZZZ'!");
             }
+            return (time << 16) | (internalParseCrockford(ulid, 10, 18) >>> 24);
+        }
 
-            String timeString = ulidString.substring(0, 10);
-            long time = internalParseCrockford(timeString);
+        /**
+         * @param ulid 26 chars ULID, case insensitive
+         * @return least significant 64 bits of ULID, without creating a Value
+         */
+        public static long parseLeastSignificantBits(CharSequence ulid) {
+            checkLength(ulid.length());
+            return internalParseCrockford(ulid, 18, 26) | (internalParseCrockford(ulid, 10, 18) << 40);
+        }
+
+        /**
+         * @param buffer ASCII bytes containing 26 chars ULID, case insensitive
+         * @param offset of ULID in buffer
+         * @return most significant 64 bits of ULID, without creating a Value
+         */
+        public static long parseMostSignificantBits(byte[] buffer, int offset) {
+            checkRange(buffer, offset);
+            long time = internalParseCrockford(buffer, offset, offset + 10);
             if ((time & TIMESTAMP_OVERFLOW_MASK) != 0) {
                 throw new IllegalArgumentException("ulidString must not exceed '7ZZZZZZZZZZZZZZZZZZZZZZZZZ'!");
             }
-            String part1String = ulidString.substring(10, 18);
-            String part2String = ulidString.substring(18);
-            long part1 = internalParseCrockford(part1String);
-            long part2 = internalParseCrockford(part2String);
+            return (time << 16) | (internalParseCrockford(buffer, offset + 10, offset + 18) >>> 24);
+        }
+
+        /**
+         * @param buffer ASCII bytes containing 26 chars ULID, case insensitive
+         * @param offset of ULID in buffer
+         * @return least significant 64 bits of ULID, without creating a Value
+         */
+        public static long parseLeastSignificantBits(byte[] buffer, int offset) {
+            checkRange(buffer, offset);
+            return internalParseCrockford(buffer, offset + 18, offset + 26)
+                    | (internalParseCrockford(buffer, offset + 10, offset + 18) << 40);
+        }
+
+        private static void checkLength(int length) {
+            if (length != 26) {
+                throw new IllegalArgumentException("ulidString must be exactly 26 chars long.");
+            }
+        }
+
+        private static void checkRange(byte[] buffer, int offset) {
+            if (offset < 0 || offset > buffer.length - 26) {
+                throw new IllegalArgumentException("buffer must contain 26 bytes from offset.");
+            }
+        }
+
+        /**
+         * Write ULID in lowercase crockford, 26 chars, into buffer without allocating.
+         *
+         * @param mostSignificantBits  of ULID
+         * @param leastSignificantBits of ULID
+         * @param buffer               to write into
+         * @param offset               of buffer to start writing 26 chars
+         */
+        public static void write(long mostSignificantBits, long leastSignificantBits, char[] buffer, int offset) {
+            internalWriteCrockford(buffer, mostSignificantBits >>> 16, 10, offset);
+            internalWriteCrockford(buffer, ((mostSignificantBits & 0xFFFFL) << 24) | (leastSignificantBits >>> 40), 8, offset + 10);
+            internalWriteCrockford(buffer, leastSignificantBits, 8, offset + 18);
+        }
 
-            long most = (time << 16) | (part1 >>> 24);
-            long least = part2 | (part1 << 40);
-            return new Value(most, least);
+        /**
+         * Write ULID in lowercase crockford ASCII, 26 bytes, into buffer without allocating.
+         *
+         * @param mostSignificantBits  of ULID
+         * @param leastSignificantBits of ULID
+         * @param buffer               to write into
+         * @param offset               of buffer to start writing 26 bytes
+         */
+        public static void write(long mostSignificantBits, long leastSignificantBits, byte[] buffer, int offset) {
+            internalWriteCrockford(buffer, mostSignificantBits >>> 16, 10, offset);
+            internalWriteCrockford(buffer, ((mostSignificantBits & 0xFFFFL) << 24) | (leastSignificantBits >>> 40), 8, offset + 10);
+            internalWriteCrockford(buffer, leastSignificantBits, 8, offset + 18);
         }
 
         public static Value fromBytes(byte[] data) {
@@ -568,17 +1005,18 @@ public final class KeyUtils {
                                                 0))));
             }
 
+            /**
+             * @param buffer to write 26 chars into
+             * @param offset of buffer to start writing
+             */
+            public void writeTo(char[] buffer, int offset) {
+                write(mostSignificantBits, leastSignificantBits, buffer, offset);
+            }
+
             @Override
             public String toString() {
                 char[] buffer = new char[26];
-
-                internalWriteCrockford(buffer, timestamp(), 10, 0);
-                long value = ((mostSignificantBits & 0xFFFFL) << 24);
-                long interim = (leastSignificantBits >>> 40);
-                value = value | interim;
-                internalWriteCrockford(buffer, value, 8, 10);
-                internalWriteCrockford(buffer, leastSignificantBits, 8, 18);
-
+                write(mostSignificantBits, leastSignificantBits, buffer, 0);
                 return new String(buffer);
             }
         }
@@ -599,9 +1037,12 @@ public final class KeyUtils {
             if (length > 12) {
                 throw new IllegalArgumentException("input length must not exceed 12 but was " + length + "!");
             }
+            return internalParseCrockford(input, 0, length);
+        }
 
+        static long internalParseCrockford(CharSequence input, int start, int end) {
             long result = 0;
-            for (int i = 0; i < length; i++) {
+            for (int i = start; i < end; i++) {
                 char current = input.charAt(i);
                 byte value = -1;
                 if (current < DECODING_CHARS.length) {
@@ -610,7 +1051,23 @@ public final class KeyUtils {
                 if (value < 0) {
                     throw new IllegalArgumentException("Illegal character '" + current + "'!");
                 }
-                result |= ((long) value) << ((length - 1 - i) * MASK_BITS);
+                result = (result << MASK_BITS) | value;
+            }
+            return result;
+        }
+
+        static long internalParseCrockford(byte[] input, int start, int end) {
+            long result = 0;
+            for (int i = start; i < end; i++) {
+                int current = input[i] & 0xFF;
+                byte value = -1;
+                if (current < DECODING_CHARS.length) {
+                    value = DECODING_CHARS[current];
+                }
+                if (value < 0) {
+                    throw new IllegalArgumentException("Illegal character '" + (char) current + "'!");
+                }
+                result = (result << MASK_BITS) | value;
             }
             return result;
         }
@@ -625,6 +1082,13 @@ public final class KeyUtils {
             }
         }
 
+        static void internalWriteCrockford(byte[] buffer, long value, int count, int offset) {
+            for (int i = 0; i < count; i++) {
+                int index = (int) ((value >>> ((count - i - 1) * MASK_BITS)) & MASK);
+                buffer[offset + i] = (byte) ENCODING_CHARS[index];
+            }
+        }
+
         static String internalUIDString(long timestamp, Random random) {
             checkTimestamp(timestamp);
 
@@ -0,0 +1,19 @@
+package dev.fuxing.validator;
+
+import dev.fuxing.utils.KeyUtils;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 19:10
+ */
+public class ULIDValidator implements ConstraintValidator<ValidULID, CharSequence> {
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        if (value == null) return true;
+        return KeyUtils.isULID(value);
+    }
+}
@@ -0,0 +1,32 @@
+package dev.fuxing.validator;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+
+/**
+ * Validate lowercase ULID, regex free equivalent of {@code @Pattern(regexp = KeyUtils.ULID_REGEX)}.
+ * Null is valid, use with @NotNull if required.
+ *
+ * @see dev.fuxing.utils.KeyUtils#isULID(CharSequence)
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 19:10
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER, TYPE_USE})
+@Constraint(validatedBy = ULIDValidator.class)
+public @interface ValidULID {
+    String message() default "ulid not valid";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,32 @@
+package dev.fuxing.validator;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+
+/**
+ * Validate lowercase UUID, regex free equivalent of {@code @Pattern(regexp = KeyUtils.UUID_REGEX)}.
+ * Null is valid, use with @NotNull if required.
+ *
+ * @see dev.fuxing.utils.KeyUtils#isUUID(CharSequence)
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 19:10
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER, TYPE_USE})
+@Constraint(validatedBy = UUIDValidator.class)
+public @interface ValidUUID {
+    String message() default "uuid not valid";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -1,11 +1,17 @@
 package dev.fuxing.transport;
 
+import dev.fuxing.err.BadRequestException;
 import dev.fuxing.utils.KeyUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Created by: Fuxing
@@ -47,4 +53,260 @@ class TransportCursorTest {
 
         System.out.println(cursor.toBase64());
     }
-}
\ No newline at end of file
+
+    @Test
+    void typedParameter() {
+        TransportCursor cursor = TransportCursor.builder()
+                .put("size", 20)
+                .put("createdMillis", Long.MIN_VALUE)
+                .put("score", 0.125)
+                .put("providerId", KeyUtils.randomMillisUUID())
+                .put("leading", "007")
+                .put("name", "名字")
+                .build();
+
+        TransportCursor decoded = TransportCursor.fromBase64(cursor.toBase64());
+        assertNotNull(decoded);
+        assertEquals(cursor.toString(), decoded.toString());
+        assertEquals(Long.MIN_VALUE, decoded.getLong("createdMillis"));
+        assertEquals(0.125, decoded.getDouble("score"));
+        assertEquals("007", decoded.get("leading"));
+        assertEquals("名字", decoded.get("name"));
+    }
+
+    @Test
+    void legacyJson() {
+        String json = "{\"size\":\"20\",\"providerId\":\"abc\"}";
+        String base64 = Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+
+        TransportCursor cursor = TransportCursor.fromBase64(base64);
+        assertNotNull(cursor);
+        assertEquals(20, cursor.getInt("size"));
+        assertEquals("abc", cursor.get("providerId"));
+    }
+
+    @Test
+    void smaller() {
+        Map<String, String> parameters = Map.of(
+                "providerId", KeyUtils.randomMillisUUID(),
+                "createdMillis", String.valueOf(System.currentTimeMillis()),
+                "size", "20"
+        );
+
+        TransportCursor cursor = TransportCursor.builder().putAll(parameters).build();
+        String json = Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes());
+        assertTrue(cursor.toBase64().length() < json.length());
+    }
+
+    @Test
+    void canonicalLong() {
+        assertTrue(TransportCursorCodec.isCanonicalLong("0"));
+        assertTrue(TransportCursorCodec.isCanonicalLong("-1"));
+        assertTrue(TransportCursorCodec.isCanonicalLong("9223372036854775807"));
+        assertTrue(TransportCursorCodec.isCanonicalLong("-9223372036854775808"));
+        assertFalse(TransportCursorCodec.isCanonicalLong("9223372036854775808"));
+        assertFalse(TransportCursorCodec.isCanonicalLong("-0"));
+        assertFalse(TransportCursorCodec.isCanonicalLong("01"));
+        assertFalse(TransportCursorCodec.isCanonicalLong("1a"));
+        assertFalse(TransportCursorCodec.isCanonicalLong("-"));
+    }
+
+    @Test
+    void signed() {
+        TransportCursorSigner.KeyRing keyRing = TransportCursorSigner.KeyRing.of(1, Map.of(
+                0, "old-secret".getBytes(),
+                1, "new-secret".getBytes()
+        ));
+        TransportCursorSigner signer = TransportCursorSigner.signed(keyRing);
+
+        byte[] payload = TransportCursorCodec.getDefault().encode(Map.of("size", "20"));
+        byte[] signed = signer.sign(payload);
+        assertArrayEquals(payload, signer.verify(signed));
+
+        signed[3] ^= 1;
+        assertThrows(BadRequestException.class, () -> signer.verify(signed));
+        assertThrows(BadRequestException.class, () -> signer.verify(payload));
+    }
+
+    @Test
+    void signedRotation() {
+        byte[] payload = TransportCursorCodec.getDefault().encode(Map.of("size", "20"));
+        TransportCursorSigner.KeyRing first = TransportCursorSigner.KeyRing.of(0, Map.of(
+                0, "first-secret".getBytes(),
+                1, "other-secret".getBytes()
+        ));
+        Map<Integer, byte[]> keys = new HashMap<>(Map.of(0, "first-secret".getBytes(), 1, "other-secret".getBytes()));
+        TransportCursorSigner.KeyRing mutable = new TransportCursorSigner.KeyRing() {
+            @Override
+            public int currentId() {
+                return 1;
+            }
+
+            @Override
+            public byte[] key(int id) {
+                return keys.get(id);
+            }
+        };
+
+        byte[] signed = TransportCursorSigner.signed(first).sign(payload);
+        TransportCursorSigner signer = TransportCursorSigner.signed(mutable);
+        // Alternate between keys, each cached Mac is kept with its own key
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(payload, signer.verify(signed));
+            assertArrayEquals(payload, signer.verify(signer.sign(payload)));
+        }
+
+        // Key of the same id replaced, the cached Mac is not reused
+        keys.put(0, "second-secret".getBytes());
+        assertThrows(BadRequestException.class, () -> signer.verify(signed));
+        keys.put(0, "first-secret".getBytes());
+        assertArrayEquals(payload, signer.verify(signed));
+    }
+
+    @Test
+    void encrypted() {
+        TransportCursorSigner.KeyRing keyRing = TransportCursorSigner.KeyRing.of(0, Map.of(
+                0, "0123456789abcdef".getBytes()
+        ));
+        TransportCursorSigner signer = TransportCursorSigner.encrypted(keyRing);
+
+        TransportCursor.setSigner(signer);
+        try {
+            TransportCursor cursor = TransportCursor.builder().put("internalId", 42).build();
+            TransportCursor decoded = TransportCursor.fromBase64(cursor.toBase64());
+            assertNotNull(decoded);
+            assertEquals(42, decoded.getLong("internalId"));
+
+            String unsigned = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(TransportCursorCodec.getDefault().encode(Map.of("internalId", "1")));
+            assertThrows(BadRequestException.class, () -> TransportCursor.fromBase64(unsigned));
+        } finally {
+            TransportCursor.setSigner(null);
+        }
+    }
+
+    @Test
+    void codec() {
+        TransportCursor cursor = TransportCursor.builder().put("articleId", "abc").put("size", 20).build();
+        String plain = cursor.toBase64();
+
+        TransportCursor.setCodec(new TransportCursorCodec("size", "id", "sort", "createdAt", "updatedAt",
+                "createdMillis", "updatedMillis", "articleId"));
+        try {
+            String base64 = cursor.toBase64();
+            assertTrue(base64.length() < plain.length());
+
+            TransportCursor decoded = TransportCursor.fromBase64(base64);
+            assertNotNull(decoded);
+            assertEquals("abc", decoded.get("articleId"));
+            assertEquals(20, decoded.getInt("size"));
+
+            // Cursor issued with the default dictionary are still decoded, it is a prefix
+            assertEquals("abc", TransportCursor.fromBase64(plain).get("articleId"));
+        } finally {
+            TransportCursor.setCodec(null);
+        }
+        assertSame(TransportCursorCodec.getDefault(), TransportCursor.getCodec());
+        assertEquals(plain, cursor.toBase64());
+    }
+
+    @Test
+    void primitiveValue() {
+        TransportCursor cursor = TransportCursor.builder()
+                .put("size", 20)
+                .put("createdMillis", 1591000000000L)
+                .put("score", 1.5)
+                .put("padded", "+7")
+                .put("name", "abc")
+                .build();
+
+        assertEquals(20, cursor.size(10, 50));
+        assertEquals(1591000000000L, cursor.getLongValue("createdMillis", 0));
+        assertEquals(1591000000000.0, cursor.getDoubleValue("createdMillis", 0));
+        assertEquals(1.5, cursor.getDoubleValue("score", 0));
+        assertEquals(7, cursor.getIntValue("padded", 0));
+        assertEquals(-1, cursor.getIntValue("missing", -1));
+        assertEquals(1591000000000L, cursor.getDate("createdMillis").getTime());
+        assertThrows(BadRequestException.class, () -> cursor.getIntValue("createdMillis", 0));
+        assertThrows(BadRequestException.class, () -> cursor.getLongValue("name", 0));
+    }
+
+    @Test
+    void malformed() {
+        TransportCursorCodec codec = TransportCursorCodec.getDefault();
+        int[][] cases = {
+                // String key with negative length
+                {1, 1, 0, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 1, 0, 0, 0},
+                // Dictionary index negative, out of range and wrapping into range as int
+                {1, 1, 0x81, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 1, 0},
+                {1, 1, 0x81, 100, 0},
+                {1, 1, 0x81, 0x80, 0x80, 0x80, 0x80, 0x10, 0},
+                // Truncated, unknown type, trailing bytes, varint too long
+                {1, 1, 0x81},
+                {1, 1, 0x81, 0, 0x80},
+                {1, 1, 0x83, 0, 0},
+                {1, 1, 0x81, 0, 0, 0},
+                {1, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 1},
+                {2},
+                {},
+        };
+
+        for (int[] values : cases) {
+            byte[] bytes = new byte[values.length];
+            for (int i = 0; i < values.length; i++) bytes[i] = (byte) values[i];
+            assertThrows(BadRequestException.class, () -> codec.decode(bytes));
+        }
+
+        assertThrows(BadRequestException.class, () -> TransportCursor.fromBase64("not base64!"));
+        assertThrows(BadRequestException.class, () -> TransportCursor.fromBase64("AQ=A"));
+
+        // Random bytes are either decoded or rejected as BadRequestException
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            byte[] bytes = new byte[1 + random.nextInt(24)];
+            random.nextBytes(bytes);
+            bytes[0] = TransportCursorCodec.VERSION_1;
+            try {
+                codec.decode(bytes);
+            } catch (BadRequestException ignored) {
+            }
+        }
+    }
+
+    @Test
+    void nullValue() {
+        String base64 = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"size\":null,\"id\":\"abc\"}".getBytes(StandardCharsets.UTF_8));
+        TransportCursor cursor = TransportCursor.fromBase64(base64);
+        assertEquals(20, cursor.size(20, 50));
+        assertFalse(cursor.has("size"));
+        assertEquals("abc", cursor.get("id"));
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("size", null);
+        parameters.put("id", "abc");
+        cursor = TransportCursor.builder().putAll(parameters).build();
+        assertEquals(20, cursor.size(20, 50));
+        assertEquals("abc", cursor.get("id"));
+    }
+
+    @Test
+    void decodedTypes() {
+        TransportCursor cursor = TransportCursor.builder()
+                .put("createdMillis", 1591000000000L)
+                .put("score", -1.5)
+                .put("id", "007")
+                .build();
+
+        Map<String, Object> decoded = new HashMap<>();
+        TransportCursorCodec.getDefault().decode(Base64.getUrlDecoder().decode(cursor.toBase64()), decoded::put);
+        assertEquals(Map.of("createdMillis", 1591000000000L, "score", -1.5, "id", "007"), decoded);
+
+        TransportCursor fromBase64 = TransportCursor.fromBase64(cursor.toBase64());
+        assertEquals("1591000000000", fromBase64.get("createdMillis"));
+        assertEquals(1591000000000L, fromBase64.getLongValue("createdMillis", 0));
+        assertEquals("-1.5", fromBase64.get("score"));
+        assertEquals(-1.5, fromBase64.getDoubleValue("score", 0));
+        assertEquals("007", fromBase64.get("id"));
+    }
+}
@@ -0,0 +1,102 @@
+package dev.fuxing.utils;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 14:48
+ */
+class ConcurrentCounterLoggerTest {
+
+    @Test
+    void increment() throws Exception {
+        ConcurrentCounterLogger logger = new ConcurrentCounterLogger(this);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 100_000; j++) {
+                    logger.increment("A");
+                    logger.increment("B", 2);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(800_000, logger.get("A"));
+        assertEquals(1_600_000, logger.get("B"));
+        assertEquals(0, logger.get("C"));
+    }
+
+    @Test
+    void snapshotAndReset() throws Exception {
+        ConcurrentCounterLogger logger = new ConcurrentCounterLogger(this);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?>[] futures = new Future[4];
+        for (int i = 0; i < 4; i++) {
+            futures[i] = executor.submit(() -> {
+                for (int j = 0; j < 250_000; j++) {
+                    logger.increment("A");
+                }
+            });
+        }
+
+        // Reset while incrementing, no increment should be lost
+        LongAdder taken = new LongAdder();
+        for (Future<?> future : futures) {
+            while (!future.isDone()) {
+                Map<String, Long> snapshot = logger.snapshotAndReset();
+                taken.add(snapshot.getOrDefault("A", 0L));
+            }
+        }
+        executor.shutdown();
+        taken.add(logger.snapshotAndReset().getOrDefault("A", 0L));
+
+        assertEquals(1_000_000, taken.sum());
+        assertEquals(0, logger.get("A"));
+    }
+
+    @Test
+    void report() {
+        Logger log = (Logger) LoggerFactory.getLogger(ConcurrentCounterLoggerTest.class.getName() + ".report");
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        log.addAppender(appender);
+
+        ConcurrentCounterLogger logger = new ConcurrentCounterLogger(log);
+        logger.increment("A", 100);
+        logger.report();
+
+        // Reset then increments past the last reported value
+        logger.reset();
+        logger.increment("A", 150);
+        logger.report();
+
+        // Reset without any increments
+        logger.increment("A", 10);
+        logger.reset();
+        logger.report();
+
+        List<ILoggingEvent> events = appender.list;
+        assertEquals(3, events.size());
+        assertEquals(List.of(100L, 100L), List.of(events.get(0).getArgumentArray()[1], events.get(0).getArgumentArray()[2]));
+        assertEquals(List.of(150L, 150L), List.of(events.get(1).getArgumentArray()[1], events.get(1).getArgumentArray()[2]));
+        assertEquals(List.of(0L, 10L), List.of(events.get(2).getArgumentArray()[1], events.get(2).getArgumentArray()[2]));
+    }
+}
@@ -0,0 +1,93 @@
+package dev.fuxing.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-28
+ * Time: 17:02
+ */
+class ConcurrentULIDTest {
+
+    @Test
+    void nextULIDs() {
+        ConcurrentULID factory = new ConcurrentULID();
+        char[] buffer = new char[26 * 10];
+        factory.nextULIDs(buffer, 1, 9);
+
+        for (int i = 1; i < 10; i++) {
+            String ulid = new String(buffer, i * 26, 26);
+            assertTrue(ulid.matches(KeyUtils.ULID_REGEX));
+            assertEquals(ulid, KeyUtils.ULID.parseULID(ulid).toString());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> factory.nextULIDs(buffer, 1, 10));
+    }
+
+    @Test
+    void nextValues() {
+        long now = System.currentTimeMillis();
+        long[] pairs = new long[20];
+        new ConcurrentULID().nextValues(pairs, 0, 10);
+
+        for (int i = 0; i < 20; i += 2) {
+            long timestamp = new KeyUtils.ULID.Value(pairs[i], pairs[i + 1]).timestamp();
+            assertTrue(timestamp >= now && timestamp <= System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    void nextMonotonicULIDs() {
+        ConcurrentULID factory = new ConcurrentULID();
+        char[] buffer = new char[26 * 100];
+        factory.nextMonotonicULIDs(buffer, 0, 100);
+
+        String previous = "";
+        for (int i = 0; i < 100; i++) {
+            String ulid = new String(buffer, i * 26, 26);
+            assertTrue(ulid.compareTo(previous) > 0);
+            previous = ulid;
+        }
+        assertTrue(factory.nextMonotonicULID().compareTo(previous) > 0);
+    }
+
+    @Test
+    void nextMonotonicConcurrent() throws Exception {
+        ConcurrentULID factory = new ConcurrentULID();
+        Set<KeyUtils.ULID.Value> values = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                List<KeyUtils.ULID.Value> list = new ArrayList<>();
+                long[] pairs = new long[200];
+                for (int i = 0; i < 1000; i++) {
+                    list.add(factory.nextMonotonicValue());
+                    factory.nextMonotonicValues(pairs, 0, 100);
+                    for (int j = 0; j < 200; j += 2) {
+                        list.add(new KeyUtils.ULID.Value(pairs[j], pairs[j + 1]));
+                    }
+                }
+
+                // Strictly increasing within each thread
+                for (int i = 1; i < list.size(); i++) {
+                    assertTrue(list.get(i).compareTo(list.get(i - 1)) > 0);
+                }
+                values.addAll(list);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(8 * 1000 * 101, values.size());
+    }
+}
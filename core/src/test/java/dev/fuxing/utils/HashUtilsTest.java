@@ -0,0 +1,32 @@
+package dev.fuxing.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-18
+ * Time: 20:31
+ */
+class HashUtilsTest {
+
+    @Test
+    void xxHash64() {
+        assertEquals(0xEF46DB3751D8E999L, HashUtils.xxHash64(new byte[0]));
+        assertEquals(0x44BC2CF5AD770999L, HashUtils.xxHash64("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x0B242D361FDA71BCL, HashUtils.xxHash64("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void xxHash64Offset() {
+        byte[] bytes = "--The quick brown fox jumps over the lazy dog--".getBytes(StandardCharsets.UTF_8);
+        byte[] sliced = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(HashUtils.xxHash64(sliced), HashUtils.xxHash64(bytes, 2, sliced.length, 0));
+        assertNotEquals(HashUtils.xxHash64(sliced), HashUtils.xxHash64(bytes, 2, sliced.length, 1));
+    }
+}
@@ -1,10 +1,17 @@
 package dev.fuxing.utils;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.fuxing.err.JsonException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Created by: Fuxing
  * Date: 2019-06-06
@@ -50,6 +57,50 @@ class JsonUtilsTest {
         Assertions.assertEquals(merged.path("a").asText(), "b");
         Assertions.assertEquals(merged.path("b").asText(), "b");
     }
+
+    @Test
+    void cached() {
+        Assertions.assertSame(JsonUtils.reader(TestObject.class), JsonUtils.reader(TestObject.class));
+        Assertions.assertSame(JsonUtils.writer(TestObject.class), JsonUtils.writer(TestObject.class));
+        Assertions.assertSame(JsonUtils.listType(Long.class), JsonUtils.listType(Long.class));
+        Assertions.assertSame(JsonUtils.mapType(String.class, Long.class), JsonUtils.mapType(String.class, Long.class));
+        Assertions.assertNotEquals(JsonUtils.mapType(String.class, Long.class), JsonUtils.mapType(String.class, Integer.class));
+
+        Assertions.assertEquals(List.of(1L, 2L), JsonUtils.toList("[1,2]", Long.class));
+        Assertions.assertEquals(Set.of(1L, 2L), JsonUtils.toSet("[1,2,2]", Long.class));
+        Assertions.assertEquals(Map.of("a", 1L), JsonUtils.toMap("{\"a\":1}", String.class, Long.class));
+        Assertions.assertEquals(Map.of("a", 1), JsonUtils.toMap("{\"a\":1}", String.class, Integer.class));
+        Assertions.assertEquals("{\"a\":\"a\",\"b\":null}", JsonUtils.toObject("{\"a\":\"a\"}", TestObject.class).toString());
+        Assertions.assertEquals("null", JsonUtils.toString(null));
+
+        ObjectNode node = JsonUtils.createObjectNode();
+        Assertions.assertSame(node, JsonUtils.toObject(node, JsonNode.class));
+    }
+
+    @Test
+    void configure() {
+        String json = "{\"a\":\"a\",\"c\":\"c\"}";
+        ObjectReader reader = JsonUtils.reader(TestObject.class);
+        Assertions.assertThrows(JsonException.class, () -> JsonUtils.toObject(json, TestObject.class));
+
+        JsonUtils.configure(mapper -> mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        try {
+            // Cached readers are invalidated
+            Assertions.assertNotSame(reader, JsonUtils.reader(TestObject.class));
+            Assertions.assertEquals("a", JsonUtils.toObject(json, TestObject.class).a);
+            Assertions.assertSame(JsonUtils.streamWriter(), JsonUtils.streamWriter());
+        } finally {
+            JsonUtils.configure(mapper -> mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        }
+        Assertions.assertThrows(JsonException.class, () -> JsonUtils.toObject(json, TestObject.class));
+    }
+
+    @Test
+    void createMapper() throws Exception {
+        String json = "{\"a\":\"a\",\"c\":\"c\"}";
+        Assertions.assertThrows(Exception.class, () -> JsonUtils.createMapper(JsonUtils.Profile.DEFAULT).readValue(json, TestObject.class));
+        Assertions.assertEquals("a", JsonUtils.createMapper(JsonUtils.Profile.FAST).readValue(json, TestObject.class).a);
+    }
 }
 
 class TestObject {
@@ -1,9 +1,20 @@
 package dev.fuxing.utils;
 
 import org.apache.commons.codec.EncoderException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Created by: Fuxing
@@ -44,4 +55,164 @@ class KeyUtilsTest {
         System.out.println(KeyUtils.nextL12());
         System.out.println(KeyUtils.nextL12().length());
     }
+
+    @Test
+    void writeParseUUID() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            char[] chars = new char[40];
+            byte[] bytes = new byte[40];
+            KeyUtils.writeUUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chars, 2);
+            KeyUtils.writeUUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), bytes, 2);
+            assertEquals(uuid.toString(), new String(chars, 2, 36));
+            assertEquals(uuid.toString(), new String(bytes, 2, 36, StandardCharsets.US_ASCII));
+            assertEquals(uuid.toString(), KeyUtils.createUUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+
+            assertEquals(uuid.getMostSignificantBits(), KeyUtils.parseUUIDMostSignificantBits(uuid.toString()));
+            assertEquals(uuid.getLeastSignificantBits(), KeyUtils.parseUUIDLeastSignificantBits(uuid.toString().toUpperCase()));
+        }
+
+        assertEquals("00000000-0000-03e8-8000-000000000000", KeyUtils.createUUID(1000, Long.MIN_VALUE));
+        assertEquals("00000000-ffff-ff9c-0000-000080000000", KeyUtils.createUUID(0, -100, 0, Integer.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.parseUUIDMostSignificantBits("0000000g-0000-0000-8000-000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.parseUUIDLeastSignificantBits("000003e8-0000-0000-8000-00000000000g"));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.parseUUIDMostSignificantBits("000003e8-0000-0000-8000"));
+    }
+
+    @Test
+    void writeParseULID() {
+        for (int i = 0; i < 1000; i++) {
+            KeyUtils.ULID.Value value = new KeyUtils.ULID().nextValue();
+            char[] chars = new char[26];
+            byte[] bytes = new byte[30];
+            value.writeTo(chars, 0);
+            KeyUtils.ULID.write(value.getMostSignificantBits(), value.getLeastSignificantBits(), bytes, 4);
+            assertEquals(value.toString(), new String(chars));
+            assertEquals(value.toString(), new String(bytes, 4, 26, StandardCharsets.US_ASCII));
+
+            assertEquals(value, KeyUtils.ULID.parseULID(value.toString().toUpperCase()));
+            assertEquals(value.getMostSignificantBits(), KeyUtils.ULID.parseMostSignificantBits(bytes, 4));
+            assertEquals(value.getLeastSignificantBits(), KeyUtils.ULID.parseLeastSignificantBits(bytes, 4));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.ULID.parseULID("8ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.ULID.parseULID("0000000000000000000000000u"));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.ULID.parseMostSignificantBits(new byte[30], 5));
+    }
+
+    @Test
+    void isValid() {
+        for (int i = 0; i < 100; i++) {
+            String ulid = KeyUtils.nextULID();
+            String uuid = KeyUtils.randomUUID();
+            String l12 = KeyUtils.nextL(12);
+            assertTrue(KeyUtils.isULID(ulid));
+            assertTrue(KeyUtils.isUUID(uuid));
+            assertTrue(KeyUtils.isL12(l12));
+            assertFalse(KeyUtils.isULID(uuid));
+            assertFalse(KeyUtils.isUUID(ulid));
+        }
+
+        for (String text : new String[]{null, "", "0000000000000000000000000u", "0000000000000000000000000A",
+                "00000000-0000-0000-0000-00000000000g", "00000000-0000-0000-0000-00000000000A",
+                "00000000-0000-0000-0000_000000000000", "00000000000000000000000000\u00e9",
+                "000000000000000000000000\u0100"}) {
+            assertEquals(text != null && text.matches(KeyUtils.ULID_REGEX), KeyUtils.isULID(text));
+            assertEquals(text != null && text.matches(KeyUtils.UUID_REGEX), KeyUtils.isUUID(text));
+        }
+    }
+
+    @Test
+    void nextL() {
+        for (int count = 0; count < 40; count++) {
+            assertTrue(KeyUtils.nextL(count).matches("^[0123456789abcdefghjkmnpqrstvwxyz]{" + count + "}$"));
+            assertTrue(KeyUtils.nextL(count, 'z').matches("^[0123456789abcdefghjkmnpqrstvwxyz]{" + count + "}z$"));
+        }
+
+        assertThrows(IllegalStateException.class, () -> KeyUtils.nextL(12, 'u'));
+        assertThrows(IllegalStateException.class, () -> KeyUtils.nextL(12, '\u00e9'));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.nextL(-1));
+    }
+
+    @Test
+    void generateSlug() {
+        assertNull(KeyUtils.generateSlug(" ", 10));
+        assertEquals("hello-world", KeyUtils.generateSlug("Hello World!", 50));
+        assertEquals("hello", KeyUtils.generateSlug("Hello World!", 5));
+        assertEquals("hello-wor", KeyUtils.generateSlug("Hello World!", -2));
+
+        // Same result as the previous multi pass implementation
+        Random random = new Random(0);
+        char[] alphabet = "aZ09 -_!\u00e9\u00c9\u212a\u0130".toCharArray();
+        for (int i = 0; i < 10_000; i++) {
+            char[] chars = new char[random.nextInt(20) + 1];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(chars);
+            int max = random.nextInt(25) - 2;
+
+            String expected = StringUtils.isBlank(text) ? null : StringUtils.substring(text.toLowerCase()
+                    .replace(" ", "-")
+                    .replaceAll("[^a-z0-9-]", ""), 0, max);
+            assertEquals(expected, KeyUtils.generateSlug(text, max), text);
+        }
+    }
+
+    @Test
+    void sha256() {
+        for (String text : new String[]{"", "Some Text", "\u00e9\u212a", "https://fuxing.dev/blog/help-me"}) {
+            assertEquals(DigestUtils.sha256Hex(text), KeyUtils.sha256(text));
+            assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(DigestUtils.sha256(text)), KeyUtils.sha256Base64(text));
+        }
+
+        assertEquals(DigestUtils.sha256Hex("fuxing.dev/blog"), KeyUtils.sha256Url("HTTPS://fuxing.dev/blog"));
+        assertEquals(DigestUtils.sha256Hex("fuxing.dev/blog"), KeyUtils.sha256Url("http://fuxing.dev/blog"));
+        assertEquals(DigestUtils.sha256Hex("ftp://fuxing.dev"), KeyUtils.sha256Url("ftp://fuxing.dev"));
+        assertEquals(KeyUtils.sha256Base64("fuxing.dev"), KeyUtils.sha256Base64Url("https://fuxing.dev"));
+        assertEquals(List.of(KeyUtils.sha256Url("https://a"), KeyUtils.sha256Url("b")), KeyUtils.sha256Urls(List.of("https://a", "b")));
+    }
+
+    @Test
+    void sha256Buffer() {
+        byte[] a = "Some Text".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "Other Text".getBytes(StandardCharsets.UTF_8);
+
+        byte[] out = new byte[34];
+        KeyUtils.sha256(a, 0, a.length, out, 2);
+        assertArrayEquals(DigestUtils.sha256(a), Arrays.copyOfRange(out, 2, 34));
+
+        KeyUtils.sha256(ByteBuffer.wrap(b), out, 1);
+        assertArrayEquals(DigestUtils.sha256(b), Arrays.copyOfRange(out, 1, 33));
+
+        byte[] batch = new byte[64];
+        KeyUtils.sha256(new byte[][]{a, b}, batch, 0);
+        assertArrayEquals(DigestUtils.sha256(a), Arrays.copyOfRange(batch, 0, 32));
+        assertArrayEquals(DigestUtils.sha256(b), Arrays.copyOfRange(batch, 32, 64));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.sha256(new byte[][]{a, b}, batch, 1));
+    }
+
+    @Test
+    void sha256BufferFailure() {
+        byte[] a = "Some Text".getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[32];
+
+        // Failed digests must not leave input in the thread digest
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.sha256(a, 0, a.length, new byte[31], 0));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.sha256(a, 0, a.length, out, -1));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.sha256(ByteBuffer.wrap(a), out, 1));
+        assertThrows(IllegalArgumentException.class, () -> KeyUtils.sha256(a, 4, a.length, out, 0));
+        assertThrows(NullPointerException.class, () -> KeyUtils.sha256(new byte[][]{a, null}, new byte[64], 0));
+        assertThrows(NullPointerException.class, () -> KeyUtils.sha256Urls(Arrays.asList("a", null)));
+
+        KeyUtils.sha256(a, 0, a.length, out, 0);
+        assertArrayEquals(DigestUtils.sha256(a), out);
+        assertEquals(DigestUtils.sha256Hex("Some Text"), KeyUtils.sha256("Some Text"));
+    }
+
+    @Test
+    void keyHash() {
+        assertEquals(HashUtils.xxHash64("abc".getBytes(StandardCharsets.UTF_8)), KeyUtils.keyHash("abc"));
+        assertEquals(KeyUtils.keyHash("fuxing.dev"), KeyUtils.keyHashUrl("https://fuxing.dev"));
+    }
 }
@@ -0,0 +1,36 @@
+package dev.fuxing.validator;
+
+import dev.fuxing.utils.KeyUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-07-01
+ * Time: 00:30
+ */
+class ULIDValidatorTest {
+    private final ULIDValidator validator = new ULIDValidator();
+
+    @Test
+    void valid() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(validator.isValid(KeyUtils.nextULID(), null));
+        }
+        assertTrue(validator.isValid(new StringBuilder(KeyUtils.nextULID()), null));
+
+        // Null is valid, use with @NotNull if required
+        assertTrue(validator.isValid(null, null));
+    }
+
+    @Test
+    void invalid() {
+        assertFalse(validator.isValid("", null));
+        assertFalse(validator.isValid("01E9ZQ3ZDQ7B8R4NS5Q3CHSJ9A", null));
+        for (String value : new String[]{"0000000000000000000000000u", "01E9ZQ3ZDQ7B8R4NS5Q3CHSJ9", "01E9ZQ3ZDQ7B8R4NS5Q3CHSJ9AA"}) {
+            assertFalse(validator.isValid(value, null), value);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package dev.fuxing.validator;
+
+import dev.fuxing.utils.KeyUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-07-01
+ * Time: 00:30
+ */
+class UUIDValidatorTest {
+    private final UUIDValidator validator = new UUIDValidator();
+
+    @Test
+    void valid() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(validator.isValid(KeyUtils.randomUUID(), null));
+        }
+        assertTrue(validator.isValid(new StringBuilder(KeyUtils.randomUUID()), null));
+
+        // Null is valid, use with @NotNull if required
+        assertTrue(validator.isValid(null, null));
+    }
+
+    @Test
+    void invalid() {
+        assertFalse(validator.isValid("", null));
+        assertFalse(validator.isValid("00000000-0000-0000-0000-00000000000A", null));
+        for (String value : new String[]{"00000000-0000-0000-0000-00000000000g", "00000000-0000-0000-0000_000000000000", "00000000-0000-0000-0000-0000000000000"}) {
+            assertFalse(validator.isValid(value, null), value);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.fuxing.transport.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Async lambda Route interface, the request is suspended until the CompletionStage completes.
+ * The server thread is released in the meantime, e.g. while waiting on several TransportClient calls.
+ * <pre>
+ * {@code
+ * GET("/profiles/:id", Duration.ofSeconds(10), ctx -> {
+ *     CompletableFuture<Profile> profile = profileClient.get(ctx.pathString("id"));
+ *     CompletableFuture<List<Image>> images = imageClient.list(ctx.pathString("id"));
+ *     return profile.thenCombine(images, Profile::withImages);
+ * });
+ * }
+ * </pre>
+ * The completed value goes through the same conversion as {@link TransportRoute}, exceptions are mapped by
+ * TransportServer, and timeout is mapped to 408 {@link dev.fuxing.err.TimeoutException}.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-21
+ * Time: 13:02
+ */
+@FunctionalInterface
+public interface AsyncTransportRoute {
+
+    /**
+     * Invoked when a request is made on this route's corresponding path e.g. '/hello'
+     *
+     * @param context context object contains request and response object
+     * @return stage of the content to be set in the response
+     * @throws Exception implementation can choose to throw exception
+     */
+    CompletionStage<?> handle(TransportContext context) throws Exception;
+
+    /**
+     * @param timeout for the stage to complete, before the request is answered with 408
+     * @return TransportRoute that suspend the request until this route completes
+     */
+    default TransportRoute toRoute(Duration timeout) {
+        return new AsyncTransportRouteAdapter(this, timeout);
+    }
+}
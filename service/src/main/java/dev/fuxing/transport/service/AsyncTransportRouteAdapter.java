@@ -0,0 +1,233 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.err.TimeoutException;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
+import spark.Filter;
+import spark.route.HttpMethod;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adapt AsyncTransportRoute into TransportRoute with servlet async.
+ * <p>
+ * Spark always serialize and close the response once the route returns, which would commit the response
+ * before the stage completes. Hence on Jetty, the output is held back with an interceptor, and once the stage
+ * completes, the request is dispatched again to this route to return the outcome through the usual Spark flow:
+ * transformer and exception mapping. Filters registered through the engines run once per request:
+ * before filters on the first dispatch, after and after after filters on the dispatch that returns the outcome.
+ * {@link Suspending} filters also run on the dispatch that suspends the request, e.g. to listen for its completion
+ * when the outcome might never be dispatched. If the request errors or completes before the stage,
+ * the stage is cancelled and the request is not dispatched again.
+ * <p>
+ * When servlet async or Jetty is not available, the route waits for the stage instead.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-21
+ * Time: 13:20
+ */
+final class AsyncTransportRouteAdapter implements TransportRoute {
+    private static final String OUTCOME = AsyncTransportRouteAdapter.class.getName() + ".outcome";
+    private static final String INTERCEPTOR = AsyncTransportRouteAdapter.class.getName() + ".interceptor";
+
+    private final AsyncTransportRoute route;
+    private final long timeoutMillis;
+
+    AsyncTransportRouteAdapter(AsyncTransportRoute route, Duration timeout) {
+        this.route = route;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public Object handle(TransportContext context) throws Exception {
+        HttpServletRequest request = context.request().raw();
+        HttpServletResponse response = context.response().raw();
+
+        Outcome outcome = (Outcome) request.getAttribute(OUTCOME);
+        if (outcome != null && request.getDispatcherType() == DispatcherType.ASYNC) {
+            request.removeAttribute(OUTCOME);
+            resume(request, response);
+            return outcome.get();
+        }
+
+        CompletableFuture<?> future = route.handle(context).toCompletableFuture();
+        if (future.isDone() || !request.isAsyncSupported() || !(response instanceof org.eclipse.jetty.server.Response)) {
+            return await(future);
+        }
+
+        suspend(request, (org.eclipse.jetty.server.Response) response, future);
+        // Body is held back by the interceptor, the outcome is returned in the async dispatch
+        return TransportResult.ok();
+    }
+
+    /**
+     * @param method of the filter, before, after or afterafter
+     * @param filter to wrap
+     * @return filter that run once for async routes dispatched twice, for Spark engines
+     */
+    static Filter filter(HttpMethod method, Filter filter) {
+        if (method == HttpMethod.before) {
+            return (request, response) -> {
+                if (request.raw().getDispatcherType() == DispatcherType.ASYNC) return;
+                filter.handle(request, response);
+            };
+        }
+
+        if (filter instanceof Suspending) return filter;
+
+        return (request, response) -> {
+            // Suspended, the outcome is returned in the async dispatch
+            if (request.raw().isAsyncStarted()) return;
+            filter.handle(request, response);
+        };
+    }
+
+    private void suspend(HttpServletRequest request, org.eclipse.jetty.server.Response response, CompletableFuture<?> future) {
+        HttpOutput output = response.getHttpOutput();
+        HttpOutput.Interceptor next = output.getInterceptor();
+        request.setAttribute(INTERCEPTOR, next);
+        output.setInterceptor(new HoldInterceptor(next));
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeoutMillis);
+
+        AtomicBoolean dispatched = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (!dispatched.compareAndSet(false, true)) return;
+
+                future.cancel(false);
+                request.setAttribute(OUTCOME, Outcome.failed(timeout(event.getThrowable())));
+                async.dispatch();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                // Completed without the outcome, e.g. aborted by the container
+                if (dispatched.compareAndSet(false, true)) future.cancel(false);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                // Container completes the errored request, it must not be dispatched again
+                if (dispatched.compareAndSet(false, true)) future.cancel(false);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        future.whenComplete((value, throwable) -> {
+            if (!dispatched.compareAndSet(false, true)) return;
+
+            request.setAttribute(OUTCOME, throwable != null ? Outcome.failed(throwable) : Outcome.completed(value));
+            async.dispatch();
+        });
+    }
+
+    private static void resume(HttpServletRequest request, HttpServletResponse response) {
+        HttpOutput.Interceptor next = (HttpOutput.Interceptor) request.getAttribute(INTERCEPTOR);
+        request.removeAttribute(INTERCEPTOR);
+
+        HttpOutput output = ((org.eclipse.jetty.server.Response) response).getHttpOutput();
+        output.setInterceptor(next);
+        output.reopen();
+    }
+
+    private Object await(CompletableFuture<?> future) throws Exception {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return Outcome.failed(e.getCause()).get();
+        } catch (java.util.concurrent.TimeoutException e) {
+            future.cancel(false);
+            throw timeout(e);
+        }
+    }
+
+    private static TimeoutException timeout(Throwable cause) {
+        return new TimeoutException(408, "Request from client to server has timeout.", cause);
+    }
+
+    /**
+     * After or after after filter that also run on the dispatch that suspends an async route,
+     * {@code request.raw().isAsyncStarted()} is true on that dispatch.
+     */
+    @FunctionalInterface
+    interface Suspending extends Filter {
+    }
+
+    /**
+     * Completed value or failure of the stage
+     */
+    private static final class Outcome {
+        private final Object value;
+        private final Throwable throwable;
+
+        private Outcome(Object value, Throwable throwable) {
+            this.value = value;
+            this.throwable = throwable;
+        }
+
+        static Outcome completed(Object value) {
+            return new Outcome(value, null);
+        }
+
+        static Outcome failed(Throwable throwable) {
+            if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                throwable = throwable.getCause();
+            }
+            if (throwable instanceof CancellationException) {
+                throwable = timeout(throwable);
+            }
+            return new Outcome(null, throwable);
+        }
+
+        Object get() throws Exception {
+            if (throwable == null) return value;
+            if (throwable instanceof Exception) throw (Exception) throwable;
+            throw (Error) throwable;
+        }
+    }
+
+    /**
+     * Swallow everything written by Spark after the route returns, the next interceptor is restored on resume.
+     */
+    private static final class HoldInterceptor implements HttpOutput.Interceptor {
+        private final HttpOutput.Interceptor next;
+
+        private HoldInterceptor(HttpOutput.Interceptor next) {
+            this.next = next;
+        }
+
+        @Override
+        public void write(ByteBuffer content, boolean last, Callback callback) {
+            callback.succeeded();
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() {
+            return next;
+        }
+
+        @Override
+        public boolean isOptimizedForDirectBuffers() {
+            return next.isOptimizedForDirectBuffers();
+        }
+    }
+}
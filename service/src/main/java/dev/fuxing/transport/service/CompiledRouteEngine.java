@@ -0,0 +1,183 @@
+package dev.fuxing.transport.service;
+
+import spark.ExceptionHandler;
+import spark.Filter;
+import spark.ResponseTransformer;
+import spark.Route;
+import spark.RouteGroup;
+import spark.route.HttpMethod;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Engine decorator that compiles routes into a {@link TransportRouteTable} per http method.
+ * <p>
+ * Spark match routes by scanning every registered route, splitting the route path and request path
+ * for each of them, a request is O(routes). With this engine, the delegate only see a catch-all
+ * route per http method, the request is dispatched with a single O(depth) lookup, path params are
+ * read by {@link dev.fuxing.transport.service.context.ContextPath} from the matched offsets.
+ * <p>
+ * Routes with a specific accept type or with splat "*" are registered on the delegate as is,
+ * they must be registered before any compiled route of the same method, else it is shadowed by the catch-all.
+ * <pre>
+ * {@code
+ * TransportServerEngine engine = new CompiledRouteEngine(SparkServiceEngine.builder().build());
+ * new TransportServer(engine, new ArticleService()).start(8080);
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-22
+ * Time: 20:12
+ */
+public final class CompiledRouteEngine implements TransportServerEngine {
+    private final TransportServerEngine delegate;
+    private final Map<HttpMethod, TransportRouteTable<Target>> tables = new EnumMap<>(HttpMethod.class);
+    private final Deque<String> paths = new ArrayDeque<>();
+
+    /**
+     * @param delegate engine to serve with, e.g. {@link SparkServerEngine#INSTANCE}
+     */
+    public CompiledRouteEngine(TransportServerEngine delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param method http method
+     * @return route table of method, null if none is compiled
+     */
+    @Nullable
+    public TransportRouteTable<?> table(HttpMethod method) {
+        synchronized (tables) {
+            return tables.get(method);
+        }
+    }
+
+    @Override
+    public void port(int port) {
+        delegate.port(port);
+    }
+
+    @Override
+    public int port() {
+        return delegate.port();
+    }
+
+    @Override
+    public void addRoute(HttpMethod method, String path, String acceptType, Route route, @Nullable ResponseTransformer transformer) {
+        String fullPath = prefix() + path;
+        if (!ALL_ACCEPT_TYPE.equals(acceptType) || fullPath.indexOf('*') >= 0) {
+            delegate.addRoute(method, fullPath, acceptType, route, transformer);
+            return;
+        }
+
+        compile(method).add(fullPath, new Target(fullPath, route, transformer));
+    }
+
+    @Override
+    public void addFilter(HttpMethod method, String path, Filter filter) {
+        if (ALL_PATHS.equals(path)) {
+            delegate.addFilter(method, path, filter);
+        } else {
+            delegate.addFilter(method, prefix() + path, filter);
+        }
+    }
+
+    /**
+     * Prefix is applied by this engine, the delegate is never called with path.
+     */
+    @Override
+    public void path(String path, RouteGroup routeGroup) {
+        paths.addLast(path);
+        try {
+            routeGroup.addRoutes();
+        } finally {
+            paths.removeLast();
+        }
+    }
+
+    @Override
+    public void notFound(Route route) {
+        delegate.notFound(route);
+    }
+
+    @Override
+    public <T extends Exception> void exception(Class<T> exceptionClass, ExceptionHandler<? super T> handler) {
+        delegate.exception(exceptionClass, handler);
+    }
+
+    @Override
+    public void awaitInitialization() {
+        delegate.awaitInitialization();
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+        synchronized (tables) {
+            tables.clear();
+        }
+    }
+
+    private String prefix() {
+        if (paths.isEmpty()) return "";
+        return String.join("", paths);
+    }
+
+    /**
+     * @param method http method
+     * @return route table of method, the catch-all is registered on the delegate when first created
+     */
+    private TransportRouteTable<Target> compile(HttpMethod method) {
+        synchronized (tables) {
+            TransportRouteTable<Target> table = tables.get(method);
+            if (table != null) return table;
+
+            TransportRouteTable<Target> created = new TransportRouteTable<>();
+            tables.put(method, created);
+
+            Route dispatcher = dispatcher(created);
+            // Spark "*" does not match the root path
+            delegate.addRoute(method, "/", ALL_ACCEPT_TYPE, dispatcher, null);
+            delegate.addRoute(method, "*", ALL_ACCEPT_TYPE, dispatcher, null);
+            return created;
+        }
+    }
+
+    /**
+     * @param table to dispatch with
+     * @return Route that returns null when not found, Spark then render not found
+     */
+    private static Route dispatcher(TransportRouteTable<Target> table) {
+        return (request, response) -> {
+            TransportRouteTable.Match<Target> match = table.find(request.uri());
+            if (match == null) {
+                TransportMetrics.matched(request, "");
+                return null;
+            }
+
+            request.attribute(TransportRouteTable.MATCH, match);
+            Target target = match.getTarget();
+            TransportMetrics.matched(request, target.path);
+            Object result = target.route.handle(request, response);
+            if (target.transformer == null) return result;
+            return target.transformer.render(result);
+        };
+    }
+
+    private static final class Target {
+        private final String path;
+        private final Route route;
+        private final ResponseTransformer transformer;
+
+        private Target(String path, Route route, @Nullable ResponseTransformer transformer) {
+            this.path = path;
+            this.route = route;
+            this.transformer = transformer;
+        }
+    }
+}
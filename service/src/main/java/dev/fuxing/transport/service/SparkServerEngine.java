@@ -0,0 +1,154 @@
+package dev.fuxing.transport.service;
+
+import spark.ExceptionHandler;
+import spark.Filter;
+import spark.ResponseTransformer;
+import spark.Route;
+import spark.RouteGroup;
+import spark.Spark;
+import spark.route.HttpMethod;
+
+import javax.annotation.Nullable;
+
+/**
+ * Default engine, routes are registered into the static Spark singleton.
+ * There can only be one server per JVM with this engine.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-19
+ * Time: 21:18
+ */
+public final class SparkServerEngine implements TransportServerEngine {
+    public static final SparkServerEngine INSTANCE = new SparkServerEngine();
+
+    private SparkServerEngine() {
+    }
+
+    @Override
+    public void port(int port) {
+        Spark.port(port);
+    }
+
+    @Override
+    public int port() {
+        return Spark.port();
+    }
+
+    @Override
+    public void addRoute(HttpMethod method, String path, String acceptType, Route route, @Nullable ResponseTransformer transformer) {
+        route = TransportMetrics.matched(route);
+        if (transformer == null) {
+            addRoute(method, path, acceptType, route);
+            return;
+        }
+
+        switch (method) {
+            case get:
+                Spark.get(path, acceptType, route, transformer);
+                return;
+            case post:
+                Spark.post(path, acceptType, route, transformer);
+                return;
+            case put:
+                Spark.put(path, acceptType, route, transformer);
+                return;
+            case patch:
+                Spark.patch(path, acceptType, route, transformer);
+                return;
+            case delete:
+                Spark.delete(path, acceptType, route, transformer);
+                return;
+            case head:
+                Spark.head(path, acceptType, route, transformer);
+                return;
+            case options:
+                Spark.options(path, acceptType, route, transformer);
+                return;
+            case trace:
+                Spark.trace(path, acceptType, route, transformer);
+                return;
+            case connect:
+                Spark.connect(path, acceptType, route, transformer);
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported route method: " + method);
+        }
+    }
+
+    private static void addRoute(HttpMethod method, String path, String acceptType, Route route) {
+        switch (method) {
+            case get:
+                Spark.get(path, acceptType, route);
+                return;
+            case post:
+                Spark.post(path, acceptType, route);
+                return;
+            case put:
+                Spark.put(path, acceptType, route);
+                return;
+            case patch:
+                Spark.patch(path, acceptType, route);
+                return;
+            case delete:
+                Spark.delete(path, acceptType, route);
+                return;
+            case head:
+                Spark.head(path, acceptType, route);
+                return;
+            case options:
+                Spark.options(path, acceptType, route);
+                return;
+            case trace:
+                Spark.trace(path, acceptType, route);
+                return;
+            case connect:
+                Spark.connect(path, acceptType, route);
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported route method: " + method);
+        }
+    }
+
+    @Override
+    public void addFilter(HttpMethod method, String path, Filter filter) {
+        filter = AsyncTransportRouteAdapter.filter(method, filter);
+        switch (method) {
+            case before:
+                Spark.before(path, filter);
+                return;
+            case after:
+                Spark.after(path, filter);
+                return;
+            case afterafter:
+                Spark.afterAfter(path, filter);
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported filter method: " + method);
+        }
+    }
+
+    @Override
+    public void path(String path, RouteGroup routeGroup) {
+        Spark.path(path, routeGroup);
+    }
+
+    @Override
+    public void notFound(Route route) {
+        Spark.notFound(route);
+    }
+
+    @Override
+    public <T extends Exception> void exception(Class<T> exceptionClass, ExceptionHandler<? super T> handler) {
+        Spark.exception(exceptionClass, handler);
+    }
+
+    @Override
+    public void awaitInitialization() {
+        Spark.awaitInitialization();
+    }
+
+    @Override
+    public void stop() {
+        Spark.stop();
+    }
+}
@@ -0,0 +1,168 @@
+package dev.fuxing.transport.service;
+
+import spark.ExceptionHandler;
+import spark.Filter;
+import spark.ResponseTransformer;
+import spark.ResponseTransformerRouteImpl;
+import spark.Route;
+import spark.RouteGroup;
+import spark.RouteImpl;
+import spark.Service;
+import spark.route.HttpMethod;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+
+/**
+ * Engine backed by its own Spark Service instance, each instance is an independent Jetty server.
+ * Hence several TransportServer can be hosted in the same JVM.
+ * <p>
+ * Requests are served by a Jetty QueuedThreadPool sized with the builder, the defaults are tuned for
+ * blocking handlers: more max threads than Jetty's default of 200 and warm min threads.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-19
+ * Time: 21:34
+ */
+public final class SparkServiceEngine implements TransportServerEngine {
+    private final Service service;
+
+    private SparkServiceEngine(Builder builder) {
+        this.service = Service.ignite();
+        if (builder.ipAddress != null) {
+            service.ipAddress(builder.ipAddress);
+        }
+        service.threadPool(builder.maxThreads, builder.minThreads, (int) builder.idleTimeout.toMillis());
+    }
+
+    /**
+     * @return underlying Spark Service, for configuration not exposed by the engine
+     */
+    public Service service() {
+        return service;
+    }
+
+    @Override
+    public void port(int port) {
+        service.port(port);
+    }
+
+    @Override
+    public int port() {
+        return service.port();
+    }
+
+    @Override
+    public void addRoute(HttpMethod method, String path, String acceptType, Route route, @Nullable ResponseTransformer transformer) {
+        route = TransportMetrics.matched(route);
+        if (transformer == null) {
+            service.addRoute(method, RouteImpl.create(path, acceptType, route));
+        } else {
+            service.addRoute(method, ResponseTransformerRouteImpl.create(path, acceptType, route, transformer));
+        }
+    }
+
+    @Override
+    public void addFilter(HttpMethod method, String path, Filter filter) {
+        filter = AsyncTransportRouteAdapter.filter(method, filter);
+        switch (method) {
+            case before:
+                service.before(path, filter);
+                return;
+            case after:
+                service.after(path, filter);
+                return;
+            case afterafter:
+                service.afterAfter(path, filter);
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported filter method: " + method);
+        }
+    }
+
+    @Override
+    public void path(String path, RouteGroup routeGroup) {
+        service.path(path, routeGroup);
+    }
+
+    @Override
+    public void notFound(Route route) {
+        service.notFound(route);
+    }
+
+    @Override
+    public <T extends Exception> void exception(Class<T> exceptionClass, ExceptionHandler<? super T> handler) {
+        service.exception(exceptionClass, handler);
+    }
+
+    @Override
+    public void awaitInitialization() {
+        service.awaitInitialization();
+    }
+
+    @Override
+    public void stop() {
+        service.stop();
+        service.awaitStop();
+    }
+
+    /**
+     * @return Builder for SparkServiceEngine
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for SparkServiceEngine
+     */
+    public static final class Builder {
+        private String ipAddress;
+        private int maxThreads = 400;
+        private int minThreads = 32;
+        private Duration idleTimeout = Duration.ofSeconds(60);
+
+        private Builder() {
+        }
+
+        /**
+         * @param ipAddress to bind to, default 0.0.0.0
+         * @return Builder chaining
+         */
+        public Builder ipAddress(String ipAddress) {
+            this.ipAddress = ipAddress;
+            return this;
+        }
+
+        /**
+         * @param maxThreads max number of Jetty threads, including acceptors and selectors
+         * @return Builder chaining
+         */
+        public Builder maxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * @param minThreads min number of Jetty threads kept warm
+         * @return Builder chaining
+         */
+        public Builder minThreads(int minThreads) {
+            this.minThreads = minThreads;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout before idle threads above minThreads are stopped
+         * @return Builder chaining
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public SparkServiceEngine build() {
+            return new SparkServiceEngine(this);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package dev.fuxing.transport.service;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
+import spark.Filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response compression negotiated with "Accept-Encoding", applied after the TransportTransformer,
+ * at the Jetty output of the response.
+ * <p>
+ * Body smaller than minSize is sent as is. Larger body is compressed as it is written, hence it works
+ * with streaming transformers too. Body with "ETag" is compressed once per method, uri, query and encoding,
+ * and kept in a bounded least recently used cache, the "ETag" is weakened as the compressed body is not byte identical.
+ * <pre>
+ * {@code
+ * server.withCompression(TransportCompression.builder()
+ *         .minSize(1024)
+ *         .level(6)
+ *         .build());
+ * }
+ * </pre>
+ * Only applies on Jetty, which is the case for Spark.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-26
+ * Time: 19:25
+ */
+public final class TransportCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final String INSTALLED = TransportCompression.class.getName() + ".installed";
+
+    private final int minSize;
+    private final int level;
+    private final List<String> encodings;
+    private final List<String> mimeTypes;
+    private final Map<String, byte[]> cache;
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    private TransportCompression(Builder builder) {
+        this.minSize = builder.minSize;
+        this.level = builder.level;
+        this.encodings = List.copyOf(builder.encodings);
+        this.mimeTypes = List.copyOf(builder.mimeTypes);
+
+        int cacheSize = builder.cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return before filter that install the compression on the response output
+     */
+    public Filter filter() {
+        return (request, response) -> {
+            if (!(response.raw() instanceof Response)) return;
+            if ("HEAD".equals(request.requestMethod())) return;
+            // Async routes are dispatched again, it is installed once
+            if (request.attribute(INSTALLED) != null) return;
+
+            String encoding = negotiate(request.headers("Accept-Encoding"));
+            if (encoding == null) return;
+
+            request.attribute(INSTALLED, encoding);
+            Response raw = (Response) response.raw();
+            HttpOutput output = raw.getHttpOutput();
+            output.setInterceptor(new CompressionInterceptor(output.getInterceptor(), raw, encoding, resource(request)));
+        };
+    }
+
+    /**
+     * ETag are only unique within a resource, the compressed body is cached by resource and ETag.
+     *
+     * @param request to identify
+     * @return method, uri and query of request
+     */
+    static String resource(spark.Request request) {
+        String query = request.queryString();
+        String resource = request.requestMethod() + ' ' + request.uri();
+        return query == null ? resource : resource + '?' + query;
+    }
+
+    /**
+     * @param acceptEncoding header value, e.g. {@code gzip, deflate;q=0.5}
+     * @return supported encoding with the highest quality, ties are resolved with the configured order
+     */
+    String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) return null;
+
+        String best = null;
+        float bestQuality = 0;
+        int bestIndex = Integer.MAX_VALUE;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase();
+            float quality = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String token = tokens[i].trim();
+                if (token.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(token.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality <= 0) continue;
+
+            int index = name.equals("*") ? 0 : encodings.indexOf(name);
+            if (index < 0) continue;
+            if (quality > bestQuality || (quality == bestQuality && index < bestIndex)) {
+                best = encodings.get(index);
+                bestQuality = quality;
+                bestIndex = index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return number of responses compressed
+     */
+    public long getCompressed() {
+        return compressed.sum();
+    }
+
+    /**
+     * @return number of bytes before compression, of compressed responses
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * @return number of bytes after compression, of compressed responses
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return number of responses served from the compressed cache
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        for (String mimeType : mimeTypes) {
+            if (contentType.startsWith(mimeType)) return true;
+        }
+        return false;
+    }
+
+    private DeflaterOutputStream compressor(String encoding, OutputStream out) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        // Deflater is owned by the stream, ended when closed
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    private byte[] compress(String encoding, byte[] bytes, int length) throws IOException {
+        Buffer out = new Buffer(Math.max(64, length / 4));
+        try (DeflaterOutputStream compressor = compressor(encoding, out)) {
+            compressor.write(bytes, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private enum State {
+        BUFFERING, PASSING, COMPRESSING
+    }
+
+    /**
+     * Buffer the body until minSize or the end, then decide whether to compress.
+     */
+    private final class CompressionInterceptor implements HttpOutput.Interceptor {
+        private final HttpOutput.Interceptor next;
+        private final Response response;
+        private final String encoding;
+        private final String resource;
+
+        private State state = State.BUFFERING;
+        private Buffer buffer;
+        private Buffer sink;
+        private DeflaterOutputStream compressor;
+
+        private CompressionInterceptor(HttpOutput.Interceptor next, Response response, String encoding, String resource) {
+            this.next = next;
+            this.response = response;
+            this.encoding = encoding;
+            this.resource = resource;
+        }
+
+        @Override
+        public void write(ByteBuffer content, boolean last, Callback callback) {
+            try {
+                switch (state) {
+                    case PASSING:
+                        next.write(content, last, callback);
+                        return;
+
+                    case COMPRESSING:
+                        bytesIn.add(content.remaining());
+                        copy(content, compressor);
+                        if (last) compressor.close();
+                        drain(last, callback);
+                        return;
+
+                    default:
+                        if (buffer == null && !isEligible()) {
+                            state = State.PASSING;
+                            next.write(content, last, callback);
+                            return;
+                        }
+
+                        if (buffer == null) buffer = new Buffer(Math.max(minSize, 1024));
+                        copy(content, buffer);
+
+                        String etag = response.getHeader("ETag");
+                        if (last) {
+                            complete(etag, callback);
+                        } else if (etag == null && buffer.size() >= minSize) {
+                            start();
+                            drain(false, callback);
+                        } else {
+                            callback.succeeded();
+                        }
+                }
+            } catch (IOException e) {
+                callback.failed(e);
+            }
+        }
+
+        private boolean isEligible() {
+            int status = response.getStatus();
+            if (status < 200 || status == 204 || status >= 300) return false;
+            if (response.getHeader("Content-Encoding") != null) return false;
+            return isCompressible(response.getContentType());
+        }
+
+        /**
+         * Body fully buffered, compressed once per resource, encoding and etag.
+         */
+        private void complete(String etag, Callback callback) throws IOException {
+            int length = buffer.size();
+            if (length < minSize) {
+                state = State.PASSING;
+                next.write(ByteBuffer.wrap(buffer.bytes(), 0, length), true, callback);
+                return;
+            }
+
+            byte[] bytes = null;
+            String key = etag != null ? encoding + ' ' + resource + ' ' + etag : null;
+            if (key != null) {
+                synchronized (cache) {
+                    bytes = cache.get(key);
+                }
+            }
+
+            if (bytes != null) {
+                cacheHits.increment();
+            } else {
+                bytes = compress(encoding, buffer.bytes(), length);
+                if (key != null) {
+                    synchronized (cache) {
+                        cache.put(key, bytes);
+                    }
+                }
+            }
+
+            compressed.increment();
+            bytesIn.add(length);
+            bytesOut.add(bytes.length);
+            headers();
+            state = State.PASSING;
+            next.write(ByteBuffer.wrap(bytes), true, callback);
+        }
+
+        /**
+         * Body larger than minSize and not complete, compressed as it is written.
+         */
+        private void start() throws IOException {
+            headers();
+            compressed.increment();
+            bytesIn.add(buffer.size());
+
+            sink = new Buffer(8192);
+            compressor = compressor(encoding, sink);
+            compressor.write(buffer.bytes(), 0, buffer.size());
+            buffer = null;
+            state = State.COMPRESSING;
+        }
+
+        private void drain(boolean last, Callback callback) {
+            int size = sink.size();
+            if (size == 0 && !last) {
+                callback.succeeded();
+                return;
+            }
+
+            bytesOut.add(size);
+            byte[] bytes = sink.toByteArray();
+            sink.reset();
+            next.write(ByteBuffer.wrap(bytes), last, callback);
+        }
+
+        private void headers() {
+            response.setHeader("Content-Encoding", encoding);
+            response.addHeader("Vary", "Accept-Encoding");
+            // Length is unknown until compressed, Jetty computes it if the body is written at once
+            response.setContentLength(-1);
+
+            String etag = response.getHeader("ETag");
+            if (etag != null && !etag.startsWith("W/")) {
+                response.setHeader("ETag", "W/" + etag);
+            }
+        }
+
+        @Override
+        public void resetBuffer() throws IllegalStateException {
+            if (state == State.COMPRESSING) {
+                try {
+                    compressor.close();
+                } catch (IOException ignored) {
+                }
+                response.getHttpFields().remove(HttpHeader.CONTENT_ENCODING);
+                compressor = null;
+                sink = null;
+            }
+            state = State.BUFFERING;
+            buffer = null;
+            next.resetBuffer();
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() {
+            return next;
+        }
+
+        @Override
+        public boolean isOptimizedForDirectBuffers() {
+            return false;
+        }
+    }
+
+    private static void copy(ByteBuffer content, OutputStream out) throws IOException {
+        if (content.hasArray()) {
+            out.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            content.position(content.limit());
+            return;
+        }
+
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        out.write(bytes);
+    }
+
+    /**
+     * ByteArrayOutputStream with access to internal buffer without copying.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        private Buffer(int size) {
+            super(size);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+
+    /**
+     * @return Builder for TransportCompression
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for TransportCompression
+     */
+    public static final class Builder {
+        private int minSize = 1024;
+        private int level = Deflater.BEST_SPEED;
+        private List<String> encodings = List.of(GZIP, DEFLATE);
+        private List<String> mimeTypes = List.of("application/json", "application/x-ndjson", "text/");
+        private int cacheSize = 256;
+
+        private Builder() {
+        }
+
+        /**
+         * @param minSize min body size in bytes to compress, default 1024
+         * @return Builder chaining
+         */
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param level deflate level from 1 (fastest) to 9 (smallest), default 1, JSON compress nearly as well as 6 at a third of the cpu
+         * @return Builder chaining
+         */
+        public Builder level(int level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * @param encodings supported encodings in order of preference, {@link #GZIP} and {@link #DEFLATE}
+         * @return Builder chaining
+         */
+        public Builder encodings(String... encodings) {
+            for (String encoding : encodings) {
+                if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding)) {
+                    throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+                }
+            }
+            this.encodings = List.of(encodings);
+            return this;
+        }
+
+        /**
+         * @param mimeTypes prefix of compressible content type, default json, ndjson and text
+         * @return Builder chaining
+         */
+        public Builder mimeTypes(String... mimeTypes) {
+            this.mimeTypes = List.of(mimeTypes);
+            return this;
+        }
+
+        /**
+         * @param cacheSize max number of compressed body cached by "ETag", 0 to disable
+         * @return Builder chaining
+         */
+        public Builder cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public TransportCompression build() {
+            return new TransportCompression(this);
+        }
+    }
+}
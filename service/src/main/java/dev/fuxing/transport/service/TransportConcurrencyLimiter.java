@@ -0,0 +1,150 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.err.UnavailableException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limit the number of route invocations in flight, requests wait up to maxWait for a permit,
+ * otherwise they are rejected with 503 {@link UnavailableException}.
+ * <p>
+ * The permit is held across the dispatches of an async request, it is released once the async request completes.
+ * <p>
+ * With an unbounded executor (e.g. a virtual thread per task), the worker pool no longer bounds concurrency,
+ * the limiter protects downstream resources such as database connections instead.
+ * <pre>
+ * {@code
+ * TransportServer server = new TransportServer(services);
+ * server.start(8080);
+ * server.withConcurrencyLimit(1000, Duration.ofMillis(200));
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-20
+ * Time: 14:12
+ */
+public final class TransportConcurrencyLimiter {
+    private static final String ATTRIBUTE = TransportConcurrencyLimiter.class.getName();
+
+    private final Semaphore semaphore;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+
+    /**
+     * @param maxConcurrent max number of route invocations in flight
+     * @param maxWait       max time to wait for a permit
+     */
+    public TransportConcurrencyLimiter(int maxConcurrent, Duration maxWait) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        this.semaphore = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Acquire a permit for the request, to be used as a before filter.
+     *
+     * @param context of request
+     * @throws UnavailableException if no permit is available within maxWait
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(TransportContext context) throws InterruptedException {
+        // Async dispatch of a request that already hold a permit
+        if (context.request().attribute(ATTRIBUTE) != null) return;
+
+        if (!semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            throw new UnavailableException();
+        }
+        context.request().attribute(ATTRIBUTE, new Permit());
+    }
+
+    /**
+     * Release the permit held by the request, to be used as an after after filter.
+     * Requests rejected in {@link #acquire(TransportContext)} do not hold a permit.
+     * If the request is async, the permit is released when it completes instead.
+     *
+     * @param context of request
+     */
+    public void release(TransportContext context) {
+        HttpServletRequest request = context.request().raw();
+        Permit permit = (Permit) request.getAttribute(ATTRIBUTE);
+        if (permit == null) return;
+
+        if (request.isAsyncStarted()) {
+            permit.releaseOnComplete(request.getAsyncContext());
+            return;
+        }
+
+        request.removeAttribute(ATTRIBUTE);
+        permit.release();
+    }
+
+    /**
+     * @return number of route invocations in flight
+     */
+    public int getInFlight() {
+        return maxConcurrent - semaphore.availablePermits();
+    }
+
+    /**
+     * @return estimated number of requests waiting for a permit
+     */
+    public int getWaiting() {
+        return semaphore.getQueueLength();
+    }
+
+    /**
+     * @return max number of route invocations in flight
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Permit of a request, released once.
+     */
+    private final class Permit implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private boolean listening;
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+
+        /**
+         * Completion also covers timeout and error, where the request might not be dispatched again.
+         */
+        private void releaseOnComplete(AsyncContext async) {
+            if (listening) return;
+            listening = true;
+            async.addListener(this);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
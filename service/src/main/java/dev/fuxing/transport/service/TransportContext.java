@@ -12,6 +12,7 @@ import spark.Response;
 public class TransportContext implements ContextBody, ContextHeader, ContextPath, ContextQuery, ContextCursor {
     private final Request request;
     private final Response response;
+    private ContextParams params;
 
     /**
      * @param request  spark request
@@ -35,4 +36,15 @@ public class TransportContext implements ContextBody, ContextHeader, ContextPath
     public Response response() {
         return response;
     }
+
+    /**
+     * @return request scoped snapshot of parsed parameters, shared with other contexts of the request
+     */
+    @Override
+    public ContextParams params() {
+        if (params == null) {
+            params = ContextPath.super.params();
+        }
+        return params;
+    }
 }
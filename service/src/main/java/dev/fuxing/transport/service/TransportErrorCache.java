@@ -0,0 +1,128 @@
+package dev.fuxing.transport.service;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.fuxing.err.ErrorURL;
+import dev.fuxing.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of pre-encoded error body, keyed by code, url and message.
+ * <pre>
+ * {"error": {"code": 400, "url": "...", "message": "..."}}
+ * </pre>
+ * The cache is bounded, each error is hashed into one of maxSize slots, a new error replaces the body in its slot.
+ * This prevent unbounded growth from messages that contains request specific data.
+ * Lookup is lock free and does not allocate, a cache hit never block other request threads.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-07
+ * Time: 11:15
+ */
+public final class TransportErrorCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    public TransportErrorCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize max number of error body to cache, 0 to disable caching
+     */
+    public TransportErrorCache(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize must not be negative");
+        this.entries = new AtomicReferenceArray<>(maxSize);
+    }
+
+    /**
+     * @param errorURL to get encoded body of
+     * @return encoded body in UTF-8, do not modify the returned array
+     */
+    public byte[] get(ErrorURL errorURL) {
+        return get(errorURL.getCode(), errorURL.getUrl(), errorURL.getMessage());
+    }
+
+    /**
+     * @param code    of error
+     * @param url     of error
+     * @param message of error
+     * @return encoded body in UTF-8, do not modify the returned array
+     */
+    public byte[] get(int code, String url, String message) {
+        int length = entries.length();
+        if (length == 0) return encode(code, url, message);
+
+        int index = Math.floorMod(hash(code, url, message), length);
+        Entry entry = entries.get(index);
+        if (entry != null && entry.matches(code, url, message)) return entry.body;
+
+        byte[] body = encode(code, url, message);
+        entries.set(index, new Entry(code, url, message, body));
+        return body;
+    }
+
+    /**
+     * @return number of cached error body
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < entries.length(); i++) {
+            if (entries.get(i) != null) size++;
+        }
+        return size;
+    }
+
+    /**
+     * Clear all cached error body
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private static int hash(int code, String url, String message) {
+        int result = code;
+        result = 31 * result + (url != null ? url.hashCode() : 0);
+        result = 31 * result + (message != null ? message.hashCode() : 0);
+        // Spread the high bits, slots are not a power of 2
+        return result ^ (result >>> 16);
+    }
+
+    private static byte[] encode(int code, String url, String message) {
+        ObjectNode error = JsonUtils.createObjectNode()
+                .put("code", code)
+                .put("url", url)
+                .put("message", message);
+
+        ObjectNode body = JsonUtils.wrap("error", error);
+        return JsonUtils.toString(body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Immutable slot of the cache, replaced as a whole.
+     */
+    private static final class Entry {
+        private final int code;
+        private final String url;
+        private final String message;
+        private final byte[] body;
+
+        private Entry(int code, String url, String message, byte[] body) {
+            this.code = code;
+            this.url = url;
+            this.message = message;
+            this.body = body;
+        }
+
+        private boolean matches(int code, String url, String message) {
+            return this.code == code &&
+                    Objects.equals(this.url, url) &&
+                    Objects.equals(this.message, message);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.transport.service.context.ContextHeader;
+import dev.fuxing.utils.HashUtils;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Conditional response transformer, GET and HEAD 200 responses are given a strong "ETag" and
+ * answered with 304 Not Modified when it matches "If-None-Match".
+ * <p>
+ * The ETag is the XXH64 of the serialized body, the body is buffered to be hashed.
+ * If the route already supplied a version key with {@link TransportContext#notModified(String)},
+ * the "ETag" header is used as is, and the body is not hashed.
+ * The body is serialized with {@link #write(com.fasterxml.jackson.core.JsonGenerator, java.util.Map)},
+ * subclass that override toString must also override write, or opt out of {@link #streaming()}.
+ * <pre>
+ * {@code
+ * public class ArticleService implements TransportService {
+ *     private static final TransportTransformer toJson = new TransportEtagTransformer();
+ *
+ *     public TransportTransformer toJson() {
+ *         return toJson;
+ *     }
+ *
+ *     public void route() {
+ *         GET("/articles/:id", ctx -> {
+ *             long version = articleRepository.version(ctx.pathLong("id"));
+ *             if (ctx.notModified(Long.toString(version))) return TransportResult.notModified();
+ *             return articleRepository.find(ctx.pathLong("id"));
+ *         });
+ *     }
+ * }
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-18
+ * Time: 20:40
+ */
+public class TransportEtagTransformer extends TransportTransformer {
+    /**
+     * Marker for body already written or not modified, rendered as an empty string for Spark.
+     */
+    private static final Object WRITTEN = new Object();
+
+    @Override
+    protected boolean streaming() {
+        return true;
+    }
+
+    @Override
+    public Route route(TransportRoute route) {
+        return (request, response) -> {
+            TransportResult result = route.handle(request, response);
+            if (result.getCode() == 304) return WRITTEN;
+            if (result.getCode() != 200) return result;
+
+            String method = request.requestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) return result;
+
+            HttpServletResponse raw = response.raw();
+            String ifNoneMatch = request.headers("If-None-Match");
+
+            // Route supplied version key, serialization is skipped if not modified
+            String etag = raw.getHeader("ETag");
+            if (etag != null) {
+                if (!ContextHeader.etagMatches(ifNoneMatch, etag)) return result;
+
+                response.status(304);
+                return WRITTEN;
+            }
+
+            Buffer buffer = new Buffer();
+            render(result, buffer);
+
+            etag = etag(buffer.bytes(), buffer.size());
+            raw.setHeader("ETag", etag);
+            if (ContextHeader.etagMatches(ifNoneMatch, etag)) {
+                response.status(304);
+                return WRITTEN;
+            }
+
+            raw.setContentLength(buffer.size());
+            raw.getOutputStream().write(buffer.bytes(), 0, buffer.size());
+            return WRITTEN;
+        };
+    }
+
+    /**
+     * @param bytes  serialized body
+     * @param length of body in bytes
+     * @return strong ETag, quoted
+     */
+    protected String etag(byte[] bytes, int length) {
+        long hash = HashUtils.xxHash64(bytes, 0, length, 0);
+        return '"' + Long.toHexString(hash) + '"';
+    }
+
+    @Override
+    public String render(Object model) throws Exception {
+        if (model == WRITTEN) return "";
+        return super.render(model);
+    }
+
+    /**
+     * ByteArrayOutputStream with access to internal buffer without copying.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        private Buffer() {
+            super(1024);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+}
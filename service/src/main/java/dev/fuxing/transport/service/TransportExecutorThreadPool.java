@@ -0,0 +1,111 @@
+package dev.fuxing.transport.service;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty ThreadPool backed by any ExecutorService, every Jetty task including the route invocation runs on it.
+ * <p>
+ * On Java 21+, this is the virtual thread mode: each request is handled on its own virtual thread.
+ * Blocking in TransactionProvider or TransportClient no longer hold a scarce platform worker,
+ * pair it with {@link TransportConcurrencyLimiter} to bound concurrency.
+ * To find synchronized blocks that pin the carrier thread, record the JFR event "jdk.VirtualThreadPinned".
+ * <pre>
+ * {@code
+ * // Must be installed before the server is started
+ * TransportExecutorThreadPool.install(Executors.newVirtualThreadPerTaskExecutor());
+ * TransportServer server = new TransportServer(services);
+ * server.start(8080);
+ * server.withConcurrencyLimit(2000, Duration.ofMillis(200));
+ * }
+ * </pre>
+ * The pool is a Jetty LifeCycle managed by the server, {@link #join()} returns once the server stops.
+ * The executor is owned by the caller, it is not shutdown when the server stops as the same pool is reused
+ * by servers initialized afterwards. Shutdown the executor after the last server is stopped.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-20
+ * Time: 14:40
+ */
+public final class TransportExecutorThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final ExecutorService executor;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param executor to run Jetty tasks on, it must not reject tasks while the server is running
+     */
+    public TransportExecutorThreadPool(ExecutorService executor) {
+        this.executor = executor;
+        addLifeCycleListener(new AbstractLifeCycleListener() {
+            @Override
+            public void lifeCycleStopped(LifeCycle event) {
+                synchronized (TransportExecutorThreadPool.this) {
+                    TransportExecutorThreadPool.this.notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replace the thread pool of Spark's embedded Jetty with an executor backed pool.
+     * Spark resolves its embedded server factory globally, hence this applies to every Spark server
+     * initialized afterwards, both {@link SparkServerEngine} and {@link SparkServiceEngine}.
+     *
+     * @param executor to run Jetty tasks on
+     * @return installed thread pool
+     */
+    public static TransportExecutorThreadPool install(ExecutorService executor) {
+        TransportExecutorThreadPool threadPool = new TransportExecutorThreadPool(executor);
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(threadPool));
+        return threadPool;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(() -> {
+            active.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Wait until the server stops this pool, the executor is not shutdown.
+     */
+    @Override
+    public synchronized void join() throws InterruptedException {
+        while (!isStopped() && !isFailed()) {
+            wait();
+        }
+    }
+
+    /**
+     * @return number of tasks running, executor threads are not pooled by Jetty
+     */
+    @Override
+    public int getThreads() {
+        return active.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    /**
+     * Executor is unbounded from Jetty's perspective, concurrency is bounded by {@link TransportConcurrencyLimiter}.
+     */
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
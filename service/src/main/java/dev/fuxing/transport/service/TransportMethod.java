@@ -1,13 +1,15 @@
 package dev.fuxing.transport.service;
 
-import spark.Spark;
+import spark.route.HttpMethod;
+
+import java.time.Duration;
 
 /**
  * Created by: Fuxing
  * Date: 2019-08-13
  * Time: 20:40
  */
-public interface TransportMethod {
+public interface TransportMethod extends TransportPath {
 
     TransportTransformer toJson = new TransportTransformer();
 
@@ -27,7 +29,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void GET(String path, TransportRoute route) {
-        Spark.get(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.get, path, toJson().route(route), toJson());
     }
 
     /**
@@ -37,7 +39,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void POST(String path, TransportRoute route) {
-        Spark.post(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.post, path, toJson().route(route), toJson());
     }
 
     /**
@@ -48,7 +50,7 @@ public interface TransportMethod {
      * @param route      json node route
      */
     default void POST(String path, String acceptType, TransportRoute route) {
-        Spark.post(path, acceptType, route, toJson);
+        serverEngine().addRoute(HttpMethod.post, path, acceptType, toJson().route(route), toJson());
     }
 
     /**
@@ -58,7 +60,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void PUT(String path, TransportRoute route) {
-        Spark.put(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.put, path, toJson().route(route), toJson());
     }
 
     /**
@@ -69,7 +71,7 @@ public interface TransportMethod {
      * @param route      json node route
      */
     default void PUT(String path, String acceptType, TransportRoute route) {
-        Spark.put(path, acceptType, route, toJson);
+        serverEngine().addRoute(HttpMethod.put, path, acceptType, toJson().route(route), toJson());
     }
 
     /**
@@ -79,7 +81,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void DELETE(String path, TransportRoute route) {
-        Spark.delete(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.delete, path, toJson().route(route), toJson());
     }
 
     /**
@@ -89,7 +91,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void HEAD(String path, TransportRoute route) {
-        Spark.head(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.head, path, toJson().route(route), toJson());
     }
 
     /**
@@ -99,7 +101,7 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void PATCH(String path, TransportRoute route) {
-        Spark.patch(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.patch, path, toJson().route(route), toJson());
     }
 
     /**
@@ -109,6 +111,61 @@ public interface TransportMethod {
      * @param route transport routing
      */
     default void OPTIONS(String path, TransportRoute route) {
-        Spark.options(path, route, toJson());
+        serverEngine().addRoute(HttpMethod.options, path, toJson().route(route), toJson());
+    }
+
+    /**
+     * Map async route for HTTP Get, the request is suspended until the stage completes
+     *
+     * @param path    the path
+     * @param timeout for the stage to complete, before 408
+     * @param route   async transport routing
+     */
+    default void GET(String path, Duration timeout, AsyncTransportRoute route) {
+        GET(path, route.toRoute(timeout));
+    }
+
+    /**
+     * Map async route for HTTP Post, the request is suspended until the stage completes
+     *
+     * @param path    the path
+     * @param timeout for the stage to complete, before 408
+     * @param route   async transport routing
+     */
+    default void POST(String path, Duration timeout, AsyncTransportRoute route) {
+        POST(path, route.toRoute(timeout));
+    }
+
+    /**
+     * Map async route for HTTP Put, the request is suspended until the stage completes
+     *
+     * @param path    the path
+     * @param timeout for the stage to complete, before 408
+     * @param route   async transport routing
+     */
+    default void PUT(String path, Duration timeout, AsyncTransportRoute route) {
+        PUT(path, route.toRoute(timeout));
+    }
+
+    /**
+     * Map async route for HTTP Delete, the request is suspended until the stage completes
+     *
+     * @param path    the path
+     * @param timeout for the stage to complete, before 408
+     * @param route   async transport routing
+     */
+    default void DELETE(String path, Duration timeout, AsyncTransportRoute route) {
+        DELETE(path, route.toRoute(timeout));
+    }
+
+    /**
+     * Map async route for HTTP Patch, the request is suspended until the stage completes
+     *
+     * @param path    the path
+     * @param timeout for the stage to complete, before 408
+     * @param route   async transport routing
+     */
+    default void PATCH(String path, Duration timeout, AsyncTransportRoute route) {
+        PATCH(path, route.toRoute(timeout));
     }
 }
@@ -0,0 +1,455 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.utils.JsonUtils;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
+import spark.Filter;
+import spark.Request;
+import spark.Route;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per route latency histogram, status code counters and bytes in/out, with a global in flight gauge.
+ * Recording is lock free, a request is recorded once when Jetty completes it, including aborted connections.
+ * <p>
+ * Routes are keyed by method and route path, e.g. "GET /users/:id", requests not matching any route are
+ * keyed with an empty path. Non standard methods are keyed as "OTHER", routes past {@link #MAX_ROUTES}
+ * are folded into "OTHER" with an empty path, the number of stats is bounded.
+ * Latency is recorded in microseconds into log linear buckets, percentiles are accurate to 1/16 of the value.
+ * <pre>
+ * {@code
+ * TransportMetrics metrics = server.withMetrics();
+ * // GET /health/metrics for JSON
+ * // GET /health/metrics?format=prometheus for Prometheus text format
+ * }
+ * </pre>
+ * Only applies on Jetty, which is the case for Spark.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-27
+ * Time: 18:40
+ */
+public final class TransportMetrics {
+    private static final String RECORDER = TransportMetrics.class.getName() + ".recorder";
+    private static final String PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "CONNECT");
+    private static final String OTHER = "OTHER";
+
+    /**
+     * Max number of route stats, guard against unbounded keys
+     */
+    public static final int MAX_ROUTES = 1024;
+
+    private final ConcurrentMap<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * Called by Jetty once the request is completed, the response is fully written or failed, e.g. connection aborted.
+     */
+    private final HttpChannel.Listener completion = new HttpChannel.Listener() {
+        @Override
+        public void onComplete(org.eclipse.jetty.server.Request request) {
+            Recorder recorder = (Recorder) request.getAttribute(RECORDER);
+            if (recorder != null) recorder.complete(request);
+        }
+    };
+
+    /**
+     * Called by engines when the route is matched, route path is only kept if metrics is recording the request.
+     *
+     * @param request   spark request
+     * @param routePath path of the route matched, e.g. /users/:id
+     */
+    static void matched(Request request, String routePath) {
+        Recorder recorder = (Recorder) request.raw().getAttribute(RECORDER);
+        if (recorder != null) recorder.routePath = routePath;
+    }
+
+    /**
+     * @param route to wrap
+     * @return route that report the matched path of the request, for Spark engines
+     */
+    static Route matched(Route route) {
+        return (request, response) -> {
+            matched(request, request.matchedPath());
+            return route.handle(request, response);
+        };
+    }
+
+    /**
+     * @return before filter that start recording the request
+     */
+    public Filter filter() {
+        return (request, response) -> {
+            if (!(response.raw() instanceof org.eclipse.jetty.server.Response)) return;
+            HttpServletRequest raw = request.raw();
+            // Async routes are dispatched again, it is recorded once
+            if (raw.getAttribute(RECORDER) != null) return;
+
+            org.eclipse.jetty.server.Request base = org.eclipse.jetty.server.Request.getBaseRequest(raw);
+            if (base == null) return;
+
+            org.eclipse.jetty.server.Response jetty = (org.eclipse.jetty.server.Response) response.raw();
+            HttpOutput output = jetty.getHttpOutput();
+            Recorder recorder = new Recorder(output.getInterceptor(), jetty);
+            raw.setAttribute(RECORDER, recorder);
+            output.setInterceptor(recorder);
+            inFlight.increment();
+
+            // Channel is reused by the requests of the connection, the listener is only added once per channel
+            HttpChannel channel = base.getHttpChannel();
+            channel.removeListener(completion);
+            channel.addListener(completion);
+        };
+    }
+
+    /**
+     * @return admin route, JSON by default, Prometheus text format with "format=prometheus" query
+     */
+    public Route route() {
+        return (request, response) -> {
+            String format = request.queryParams("format");
+            if ("prometheus".equals(format)) {
+                response.type(PROMETHEUS);
+                return toPrometheus();
+            }
+
+            response.type(TransportRoute.APP_JSON);
+            return JsonUtils.toString(toMap());
+        };
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @param method    http method, e.g. GET
+     * @param routePath path of route, e.g. /users/:id
+     * @return stats of route, null if not recorded yet
+     */
+    public RouteStats getRoute(String method, String routePath) {
+        return routes.get(method + ' ' + routePath);
+    }
+
+    /**
+     * @return snapshot of all routes, as JSON tree
+     */
+    public Map<String, Object> toMap() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (RouteStats stats : new TreeMap<>(routes).values()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("method", stats.method);
+            map.put("path", stats.path);
+            map.put("count", stats.histogram.getCount());
+            map.put("p50", stats.histogram.getPercentile(0.5) / 1000.0);
+            map.put("p99", stats.histogram.getPercentile(0.99) / 1000.0);
+            map.put("p999", stats.histogram.getPercentile(0.999) / 1000.0);
+            map.put("max", stats.histogram.getMax() / 1000.0);
+            map.put("mean", stats.histogram.getMean() / 1000.0);
+            map.put("bytesIn", stats.bytesIn.sum());
+            map.put("bytesOut", stats.bytesOut.sum());
+
+            Map<String, Long> statuses = new TreeMap<>();
+            stats.statuses.forEach((status, count) -> statuses.put(status.toString(), count.sum()));
+            map.put("status", statuses);
+            list.add(map);
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("inFlight", getInFlight());
+        map.put("unit", "ms");
+        map.put("routes", list);
+        return map;
+    }
+
+    /**
+     * @return snapshot of all routes, in Prometheus text format
+     */
+    public String toPrometheus() {
+        StringBuilder builder = new StringBuilder(1024);
+        builder.append("# HELP transport_requests_in_flight Requests in flight.\n");
+        builder.append("# TYPE transport_requests_in_flight gauge\n");
+        builder.append("transport_requests_in_flight ").append(getInFlight()).append('\n');
+
+        Map<String, RouteStats> sorted = new TreeMap<>(routes);
+        builder.append("# HELP transport_request_duration_seconds Request latency by route.\n");
+        builder.append("# TYPE transport_request_duration_seconds summary\n");
+        for (RouteStats stats : sorted.values()) {
+            String labels = labels(stats);
+            for (double quantile : new double[]{0.5, 0.99, 0.999}) {
+                builder.append("transport_request_duration_seconds{").append(labels)
+                        .append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(stats.histogram.getPercentile(quantile) / 1_000_000.0).append('\n');
+            }
+            builder.append("transport_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(stats.histogram.getSum() / 1_000_000.0).append('\n');
+            builder.append("transport_request_duration_seconds_count{").append(labels).append("} ")
+                    .append(stats.histogram.getCount()).append('\n');
+        }
+
+        builder.append("# HELP transport_requests_total Requests by route and status code.\n");
+        builder.append("# TYPE transport_requests_total counter\n");
+        for (RouteStats stats : sorted.values()) {
+            String labels = labels(stats);
+            new TreeMap<>(stats.statuses).forEach((status, count) -> {
+                builder.append("transport_requests_total{").append(labels)
+                        .append(",code=\"").append(status).append("\"} ").append(count.sum()).append('\n');
+            });
+        }
+
+        builder.append("# HELP transport_request_bytes_total Request body bytes by route.\n");
+        builder.append("# TYPE transport_request_bytes_total counter\n");
+        for (RouteStats stats : sorted.values()) {
+            builder.append("transport_request_bytes_total{").append(labels(stats)).append("} ")
+                    .append(stats.bytesIn.sum()).append('\n');
+        }
+
+        builder.append("# HELP transport_response_bytes_total Response body bytes by route.\n");
+        builder.append("# TYPE transport_response_bytes_total counter\n");
+        for (RouteStats stats : sorted.values()) {
+            builder.append("transport_response_bytes_total{").append(labels(stats)).append("} ")
+                    .append(stats.bytesOut.sum()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static String labels(RouteStats stats) {
+        return "method=\"" + escape(stats.method) + "\",route=\"" + escape(stats.path) + '"';
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    void record(String requestMethod, String routePath, int status, long micros, long bytesIn, long bytesOut) {
+        String method = METHODS.contains(requestMethod) ? requestMethod : OTHER;
+        // Prefix path without leading slash is still matched by Spark, e.g. "v1/users/:id"
+        String path = routePath.isEmpty() || routePath.charAt(0) == '/' ? routePath : '/' + routePath;
+        String key = method + ' ' + path;
+        RouteStats stats = routes.get(key);
+        if (stats == null) {
+            if (routes.size() >= MAX_ROUTES) {
+                stats = routes.computeIfAbsent(OTHER + ' ', k -> new RouteStats(OTHER, ""));
+            } else {
+                stats = routes.computeIfAbsent(key, k -> new RouteStats(method, path));
+            }
+        }
+        stats.record(status, micros, bytesIn, bytesOut);
+    }
+
+    /**
+     * @return number of route stats
+     */
+    int size() {
+        return routes.size();
+    }
+
+    /**
+     * Stats of a route
+     */
+    public static final class RouteStats {
+        private final String method;
+        private final String path;
+        private final Histogram histogram = new Histogram();
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+
+        private RouteStats(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+        private void record(int status, long micros, long in, long out) {
+            histogram.record(micros);
+            bytesIn.add(in);
+            bytesOut.add(out);
+
+            LongAdder counter = statuses.get(status);
+            if (counter == null) {
+                counter = statuses.computeIfAbsent(status, s -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        /**
+         * @return latency histogram in microseconds
+         */
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @param status code
+         * @return number of responses with status code
+         */
+        public long getStatusCount(int status) {
+            LongAdder counter = statuses.get(status);
+            return counter != null ? counter.sum() : 0;
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+    }
+
+    /**
+     * Lock free log linear histogram, values below 32 are exact, above that each power of 2 is split into
+     * 16 buckets. Values are clamped at 2^40.
+     */
+    public static final class Histogram {
+        private static final int LINEAR = 32;
+        private static final int SUB_BUCKETS = 16;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 5 + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * @param value to record, negative is recorded as 0
+         */
+        public void record(long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        static int index(long value) {
+            if (value < LINEAR) return (int) value;
+
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            if (exponent == MAX_EXPONENT) return BUCKETS - 1;
+            int sub = (int) (value >>> (exponent - 4)) - SUB_BUCKETS;
+            return LINEAR + (exponent - 5) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @param index of bucket
+         * @return highest value of bucket
+         */
+        static long highest(int index) {
+            if (index < LINEAR) return index;
+
+            int exponent = (index - LINEAR) / SUB_BUCKETS + 5;
+            long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((sub + 1) << (exponent - 4)) - 1;
+        }
+
+        /**
+         * @param percentile between 0 and 1, e.g. 0.99
+         * @return value at percentile, 0 if empty
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && snapshot[i] > 0) {
+                    return Math.min(highest(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+    }
+
+    /**
+     * Count the response bytes as they are written, recorded once the channel completes the request.
+     */
+    private final class Recorder implements HttpOutput.Interceptor {
+        private final HttpOutput.Interceptor next;
+        private final org.eclipse.jetty.server.Response response;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private volatile String routePath = "";
+        private volatile long written;
+
+        private Recorder(HttpOutput.Interceptor next, org.eclipse.jetty.server.Response response) {
+            this.next = next;
+            this.response = response;
+        }
+
+        @Override
+        public void write(ByteBuffer content, boolean last, Callback callback) {
+            written += content.remaining();
+            next.write(content, last, callback);
+        }
+
+        private void complete(org.eclipse.jetty.server.Request request) {
+            if (!recorded.compareAndSet(false, true)) return;
+
+            inFlight.decrement();
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            long bytesIn = request.getHttpInput().getContentConsumed();
+            record(request.getMethod(), routePath, response.getStatus(), micros, bytesIn, written);
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() {
+            return next;
+        }
+
+        @Override
+        public boolean isOptimizedForDirectBuffers() {
+            return next.isOptimizedForDirectBuffers();
+        }
+    }
+}
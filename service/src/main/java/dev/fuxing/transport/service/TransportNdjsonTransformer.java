@@ -0,0 +1,124 @@
+package dev.fuxing.transport.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.fuxing.utils.JsonUtils;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * NDJSON (application/x-ndjson) transformer, routes that return a {@link Stream} or {@link Iterator}
+ * are written a line per item into the servlet OutputStream, flushed every flushLines lines.
+ * Items are pulled as they are written, memory stays flat regardless of the size of the dataset.
+ * Other results are written as streaming JSON, see {@link TransportStreamingTransformer}.
+ * <pre>
+ * {@code
+ * public class ExportService implements TransportService {
+ *     private static final TransportTransformer toJson = new TransportNdjsonTransformer(1000);
+ *
+ *     public TransportTransformer toJson() {
+ *         return toJson;
+ *     }
+ *
+ *     public void route() {
+ *         GET("/articles/export", ctx -> articleRepository.streamAll());
+ *         POST("/articles/import", ctx -> {
+ *             try (Stream<Article> stream = ctx.bodyAsNdjson(Article.class)) {
+ *                 stream.forEach(articleRepository::save);
+ *             }
+ *             return TransportResult.ok();
+ *         });
+ *     }
+ * }
+ * }
+ * </pre>
+ * Stream is closed after it is written. Once the response is committed, status code can no longer be changed.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-25
+ * Time: 19:52
+ */
+public class TransportNdjsonTransformer extends TransportStreamingTransformer {
+    /**
+     * Marker for body already written, rendered as an empty string for Spark.
+     */
+    private static final Object WRITTEN = new Object();
+
+    private final int flushLines;
+
+    /**
+     * NDJSON lines are flushed every 1000 lines.
+     */
+    public TransportNdjsonTransformer() {
+        this(1000);
+    }
+
+    /**
+     * @param flushLines flush every n lines, also used for chunked flushing of JSON collections
+     */
+    public TransportNdjsonTransformer(int flushLines) {
+        super(flushLines);
+        if (flushLines <= 0) throw new IllegalArgumentException("flushLines must be > 0");
+        this.flushLines = flushLines;
+    }
+
+    @Override
+    public Route route(TransportRoute route) {
+        return (request, response) -> {
+            TransportResult result = route.handle(request, response);
+            Object data = result.getMap() != null ? result.getMap().get("data") : null;
+            HttpServletResponse raw = response.raw();
+
+            try {
+                if (data instanceof Stream) {
+                    raw.setContentType(TransportRoute.APP_NDJSON);
+                    try (Stream<?> stream = (Stream<?>) data) {
+                        write(stream.iterator(), raw.getOutputStream());
+                    }
+                } else if (data instanceof Iterator) {
+                    raw.setContentType(TransportRoute.APP_NDJSON);
+                    write((Iterator<?>) data, raw.getOutputStream());
+                } else {
+                    render(result, raw.getOutputStream());
+                }
+            } catch (Exception e) {
+                // Discard partial body so that the exception handler can still write the error
+                if (!raw.isCommitted()) raw.resetBuffer();
+                throw e;
+            }
+            return WRITTEN;
+        };
+    }
+
+    /**
+     * @param iterator items to write, a line per item
+     * @param out      to write into, it will not be closed
+     * @throws IOException if failed to write into out
+     */
+    protected void write(Iterator<?> iterator, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JsonUtils.objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            int count = 0;
+            while (iterator.hasNext()) {
+                writer().writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++count % flushLines == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String render(Object model) throws Exception {
+        if (model == WRITTEN) return "";
+        return super.render(model);
+    }
+}
@@ -1,7 +1,7 @@
 package dev.fuxing.transport.service;
 
 import spark.RouteGroup;
-import spark.Spark;
+import spark.route.HttpMethod;
 
 /**
  * Created by: Fuxing
@@ -9,28 +9,38 @@ import spark.Spark;
  * Time: 20:41
  */
 public interface TransportPath {
+
+    /**
+     * Override to register into a specific engine.
+     *
+     * @return engine to register into, default to the engine of the TransportServer starting this service
+     */
+    default TransportServerEngine serverEngine() {
+        return TransportServer.currentEngine();
+    }
+
     /**
      * @param path   path for before filter, accepts wildcards
      * @param filter json filter
      */
     default void BEFORE(String path, TransportFilter filter) {
-        Spark.before(path, filter);
+        serverEngine().addFilter(HttpMethod.before, path, filter);
     }
 
     default void AFTER(String path, TransportFilter filter) {
-        Spark.after(path, filter);
+        serverEngine().addFilter(HttpMethod.after, path, filter);
     }
 
     default void AFTER(TransportFilter filter) {
-        Spark.after(filter);
+        serverEngine().addFilter(HttpMethod.after, TransportServerEngine.ALL_PATHS, filter);
     }
 
     default void AFTER_AFTER(String path, TransportFilter filter) {
-        Spark.afterAfter(path, filter);
+        serverEngine().addFilter(HttpMethod.afterafter, path, filter);
     }
 
     default void AFTER_AFTER(TransportFilter filter) {
-        Spark.afterAfter(filter);
+        serverEngine().addFilter(HttpMethod.afterafter, TransportServerEngine.ALL_PATHS, filter);
     }
 
     /**
@@ -38,6 +48,6 @@ public interface TransportPath {
      * @param routeGroup route
      */
     default void PATH(String path, RouteGroup routeGroup) {
-        Spark.path(path, routeGroup);
+        serverEngine().path(path, routeGroup);
     }
 }
@@ -0,0 +1,141 @@
+package dev.fuxing.transport.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Sampling diagnostic for synchronized blocks in the request hot path, of platform threads.
+ * <p>
+ * A platform worker blocked on a contended monitor is wasted. Each sample counts the synchronized frames held by
+ * request threads, and the frames where request threads are BLOCKED waiting to enter a monitor.
+ * The frames counted most often are the candidates to replace with ReentrantLock.
+ * <p>
+ * Virtual threads are not included in thread dumps, hence this cannot observe them. For carrier pinning of
+ * virtual threads, record the JFR event "jdk.VirtualThreadPinned" on Java 21+ instead.
+ * <p>
+ * Sampling dumps all threads with monitors, which require a safepoint, use an interval of seconds, not millis.
+ * <pre>
+ * {@code
+ * TransportPinningDiagnostic diagnostic = TransportPinningDiagnostic.start(Duration.ofSeconds(1), name -> name.startsWith("qtp"));
+ * // Later
+ * diagnostic.report(10);
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-20
+ * Time: 15:26
+ */
+public final class TransportPinningDiagnostic implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TransportPinningDiagnostic.class);
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ConcurrentMap<String, LongAdder> frames = new ConcurrentHashMap<>();
+    private final LongAdder samples = new LongAdder();
+
+    private final Predicate<String> threadFilter;
+    private final ScheduledExecutorService scheduler;
+
+    private TransportPinningDiagnostic(Predicate<String> threadFilter) {
+        this.threadFilter = threadFilter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transport-pinning-diagnostic");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param interval     between samples
+     * @param threadFilter thread names to sample, e.g. Jetty worker "qtp" prefix
+     * @return started diagnostic
+     */
+    public static TransportPinningDiagnostic start(Duration interval, Predicate<String> threadFilter) {
+        TransportPinningDiagnostic diagnostic = new TransportPinningDiagnostic(threadFilter);
+        long millis = interval.toMillis();
+        diagnostic.scheduler.scheduleAtFixedRate(diagnostic::sample, millis, millis, TimeUnit.MILLISECONDS);
+        return diagnostic;
+    }
+
+    /**
+     * Take a single sample of all threads
+     */
+    public void sample() {
+        try {
+            ThreadInfo[] infos = threadMXBean.dumpAllThreads(threadMXBean.isObjectMonitorUsageSupported(), false);
+            for (ThreadInfo info : infos) {
+                if (info == null || !threadFilter.test(info.getThreadName())) continue;
+
+                for (MonitorInfo monitor : info.getLockedMonitors()) {
+                    increment("HELD " + monitor.getLockedStackFrame());
+                }
+
+                StackTraceElement[] stack = info.getStackTrace();
+                if (info.getThreadState() == Thread.State.BLOCKED && stack.length > 0) {
+                    increment("BLOCKED " + stack[0]);
+                }
+            }
+            samples.increment();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to sample threads", e);
+        }
+    }
+
+    private void increment(String frame) {
+        frames.computeIfAbsent(frame, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param limit max number of frames
+     * @return frames sorted by count descending
+     */
+    public Map<String, Long> snapshot(int limit) {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        frames.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> snapshot.put(entry.getKey(), entry.getValue()));
+        return snapshot;
+    }
+
+    /**
+     * Log the frames counted most often at warn level.
+     *
+     * @param limit max number of frames
+     */
+    public void report(int limit) {
+        Map<String, Long> snapshot = snapshot(limit);
+        logger.warn("Synchronized frames in {} samples: {}", samples.sum(), snapshot.size());
+        snapshot.forEach((frame, count) -> logger.warn("{}: {}", count, frame));
+    }
+
+    /**
+     * Clear all counted frames
+     */
+    public void reset() {
+        frames.clear();
+        samples.reset();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -63,6 +63,14 @@ public class TransportResult {
         return new TransportResult(404, Map.of());
     }
 
+    /**
+     * @return TransportResult with 304 status, body is not written
+     * @see dev.fuxing.transport.service.context.ContextHeader#notModified(String)
+     */
+    public static TransportResult notModified() {
+        return new TransportResult(304, Map.of());
+    }
+
     /**
      * @return TransportResult with 200 status
      */
@@ -15,6 +15,7 @@ import spark.Route;
 @FunctionalInterface
 public interface TransportRoute extends Route {
     String APP_JSON = "application/json; charset=utf-8";
+    String APP_NDJSON = "application/x-ndjson";
 
     /**
      * Invoked when a request is made on this route's corresponding path e.g. '/hello'
@@ -0,0 +1,246 @@
+package dev.fuxing.transport.service;
+
+import spark.utils.urldecoding.UrlDecode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prefix tree of route paths, split by "/" segments, with ":param" segments.
+ * Lookup is O(depth), static children are found by binary search on the segment hash computed in place,
+ * the uri is never split or copied. Path params are captured as offsets into the uri, only decoded when read.
+ * <p>
+ * Static segments take priority over ":param" segments at the same depth, regardless of registration order.
+ * Trailing slash must match exactly, same as Spark. Splat "*" segments are not supported.
+ * <p>
+ * Routes are added at startup, lookups are lock free.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-22
+ * Time: 19:44
+ *
+ * @param <T> target of route
+ */
+public final class TransportRouteTable<T> {
+    /**
+     * Request attribute name of the {@link Match}, read by {@link dev.fuxing.transport.service.context.ContextPath}
+     */
+    public static final String MATCH = TransportRouteTable.class.getName() + ".match";
+
+    private final Node<T> root = new Node<>();
+    private volatile int maxParams = 0;
+    private volatile int size = 0;
+
+    /**
+     * @param path   of route, e.g. /users/:id/images
+     * @param target of route
+     * @throws IllegalArgumentException if path contains splat or is already added
+     */
+    public synchronized void add(String path, T target) {
+        if (path.indexOf('*') >= 0) throw new IllegalArgumentException("Splat is not supported: " + path);
+
+        List<String> names = new ArrayList<>();
+        Node<T> node = root;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+
+            if (segment.charAt(0) == ':') {
+                names.add(segment.substring(1).toLowerCase());
+                if (node.param == null) node.param = new Node<>();
+                node = node.param;
+            } else {
+                node = node.addChild(segment);
+            }
+        }
+
+        Leaf<T> leaf = new Leaf<>(target, names.toArray(new String[0]));
+        if (path.endsWith("/")) {
+            if (node.slashLeaf != null) throw new IllegalArgumentException("Route already added: " + path);
+            node.slashLeaf = leaf;
+        } else {
+            if (node.leaf != null) throw new IllegalArgumentException("Route already added: " + path);
+            node.leaf = leaf;
+        }
+
+        maxParams = Math.max(maxParams, names.size());
+        size++;
+    }
+
+    /**
+     * @param uri request uri, not decoded
+     * @return Match or null if not found
+     */
+    @Nullable
+    public Match<T> find(String uri) {
+        int max = maxParams;
+        int[] offsets = new int[max * 2];
+        boolean slash = uri.length() > 0 && uri.charAt(uri.length() - 1) == '/';
+
+        Leaf<T> leaf = find(root, uri, 0, offsets, 0, slash);
+        if (leaf == null) return null;
+        return new Match<>(leaf, uri, offsets);
+    }
+
+    /**
+     * @return number of routes
+     */
+    public int size() {
+        return size;
+    }
+
+    private static <T> Leaf<T> find(Node<T> node, String uri, int pos, int[] offsets, int index, boolean slash) {
+        int length = uri.length();
+        while (pos < length && uri.charAt(pos) == '/') pos++;
+        if (pos >= length) return slash ? node.slashLeaf : node.leaf;
+
+        int end = uri.indexOf('/', pos);
+        if (end < 0) end = length;
+
+        Node<T> child = node.child(uri, pos, end);
+        if (child != null) {
+            Leaf<T> leaf = find(child, uri, end, offsets, index, slash);
+            if (leaf != null) return leaf;
+        }
+
+        Node<T> param = node.param;
+        if (param != null && index * 2 < offsets.length) {
+            offsets[index * 2] = pos;
+            offsets[index * 2 + 1] = end;
+            return find(param, uri, end, offsets, index + 1, slash);
+        }
+        return null;
+    }
+
+    private static int hash(String s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        return hash;
+    }
+
+    private static final class Node<T> {
+        private volatile int[] hashes = new int[0];
+        private volatile String[] keys = new String[0];
+        private volatile Node<T>[] children = newArray(0);
+
+        private volatile Node<T> param;
+        private volatile Leaf<T> leaf;
+        private volatile Leaf<T> slashLeaf;
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int length) {
+            return (Node<T>[]) new Node<?>[length];
+        }
+
+        private Node<T> child(String uri, int start, int end) {
+            int[] hashes = this.hashes;
+            if (hashes.length == 0) return null;
+
+            String[] keys = this.keys;
+            Node<T>[] children = this.children;
+            int hash = hash(uri, start, end);
+            int length = end - start;
+
+            int i = Arrays.binarySearch(hashes, hash);
+            if (i < 0) return null;
+            // Walk back to the first of equal hashes
+            while (i > 0 && hashes[i - 1] == hash) i--;
+            for (; i < hashes.length && hashes[i] == hash; i++) {
+                String key = keys[i];
+                if (key.length() == length && uri.regionMatches(start, key, 0, length)) return children[i];
+            }
+            return null;
+        }
+
+        /**
+         * Copy on write, readers see either the old or new arrays
+         */
+        private Node<T> addChild(String segment) {
+            Node<T> existing = child(segment, 0, segment.length());
+            if (existing != null) return existing;
+
+            int hash = hash(segment, 0, segment.length());
+            int i = Arrays.binarySearch(hashes, hash);
+            if (i < 0) i = -i - 1;
+
+            int length = hashes.length;
+            int[] newHashes = new int[length + 1];
+            String[] newKeys = new String[length + 1];
+            Node<T>[] newChildren = newArray(length + 1);
+
+            System.arraycopy(hashes, 0, newHashes, 0, i);
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+
+            Node<T> node = new Node<>();
+            newHashes[i] = hash;
+            newKeys[i] = segment;
+            newChildren[i] = node;
+
+            System.arraycopy(hashes, i, newHashes, i + 1, length - i);
+            System.arraycopy(keys, i, newKeys, i + 1, length - i);
+            System.arraycopy(children, i, newChildren, i + 1, length - i);
+
+            // Children first, hashes last: readers start from hashes
+            this.children = newChildren;
+            this.keys = newKeys;
+            this.hashes = newHashes;
+            return node;
+        }
+    }
+
+    private static final class Leaf<T> {
+        private final T target;
+        private final String[] names;
+
+        private Leaf(T target, String[] names) {
+            this.target = target;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Matched route with path params
+     *
+     * @param <T> target of route
+     */
+    public static final class Match<T> {
+        private final Leaf<T> leaf;
+        private final String uri;
+        private final int[] offsets;
+
+        private Match(Leaf<T> leaf, String uri, int[] offsets) {
+            this.leaf = leaf;
+            this.uri = uri;
+            this.offsets = offsets;
+        }
+
+        /**
+         * @return target of matched route
+         */
+        public T getTarget() {
+            return leaf.target;
+        }
+
+        /**
+         * @param name of path param, with or without ":", case insensitive like Spark
+         * @return decoded path param, null if not found
+         */
+        @Nullable
+        public String param(String name) {
+            int start = name.startsWith(":") ? 1 : 0;
+            String[] names = leaf.names;
+            for (int i = 0; i < names.length; i++) {
+                String key = names[i];
+                if (key.length() == name.length() - start && name.regionMatches(true, start, key, 0, key.length())) {
+                    int from = offsets[i * 2];
+                    return UrlDecode.path(uri, from, offsets[i * 2 + 1] - from);
+                }
+            }
+            return null;
+        }
+    }
+}
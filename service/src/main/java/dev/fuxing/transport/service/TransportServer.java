@@ -1,21 +1,26 @@
 package dev.fuxing.transport.service;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.typesafe.config.ConfigFactory;
 import dev.fuxing.err.BadGatewayException;
+import dev.fuxing.err.BadRequestException;
 import dev.fuxing.err.ErrorURL;
 import dev.fuxing.err.TimeoutException;
 import dev.fuxing.err.UnknownException;
 import dev.fuxing.transport.TransportError;
-import dev.fuxing.utils.JsonUtils;
+import dev.fuxing.transport.service.context.ContextBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Response;
-import spark.Spark;
+import spark.route.HttpMethod;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -26,8 +31,21 @@ import java.util.function.Function;
 public class TransportServer implements TransportPath {
     protected static final Logger logger = LoggerFactory.getLogger(TransportServer.class);
     protected static final String DEFAULT_HEALTH_PATH = "/health/check";
+    protected static final String DEFAULT_METRICS_PATH = "/health/metrics";
 
+    /**
+     * Engine of the server that is setting up routers, for TransportService to register into.
+     */
+    private static final ThreadLocal<TransportServerEngine> CURRENT_ENGINE = new ThreadLocal<>();
+
+    protected final TransportServerEngine engine;
     protected final TransportService[] services;
+    protected final TransportErrorCache errorCache = new TransportErrorCache();
+
+    /**
+     * Paths of health and metrics, they are not limited by {@link #withConcurrencyLimit(int, Duration)}
+     */
+    private final Set<String> unlimitedPaths = ConcurrentHashMap.newKeySet();
     private boolean started = false;
 
     protected boolean debug = true;
@@ -36,6 +54,15 @@ public class TransportServer implements TransportPath {
      * @param services array of routes for spark server to route with
      */
     public TransportServer(TransportService... services) {
+        this(SparkServerEngine.INSTANCE, services);
+    }
+
+    /**
+     * @param engine   http engine to serve with
+     * @param services array of routes for the server to route with
+     */
+    public TransportServer(TransportServerEngine engine, TransportService... services) {
+        this.engine = engine;
         this.services = services;
     }
 
@@ -48,6 +75,29 @@ public class TransportServer implements TransportPath {
         this(services.toArray(new TransportService[0]));
     }
 
+    /**
+     * Support for guice injections
+     *
+     * @param engine   http engine to serve with
+     * @param services set of routes for the server to route with
+     */
+    public TransportServer(TransportServerEngine engine, Collection<TransportService> services) {
+        this(engine, services.toArray(new TransportService[0]));
+    }
+
+    /**
+     * @return engine of the server currently setting up routers, default to the static Spark engine
+     */
+    static TransportServerEngine currentEngine() {
+        TransportServerEngine engine = CURRENT_ENGINE.get();
+        return engine != null ? engine : SparkServerEngine.INSTANCE;
+    }
+
+    @Override
+    public TransportServerEngine serverEngine() {
+        return engine;
+    }
+
     /**
      * Start transport server with default port in the config = http.port
      * Port number can also be injected in the env as: HTTP_PORT
@@ -78,24 +128,30 @@ public class TransportServer implements TransportPath {
      */
     public void start(int port) {
         // Setup port
-        Spark.port(port);
+        engine.port(port);
 
         // Logging Setup
         logger.info("Path logging is registered to trace.");
         // Because it is trace, to activate logging
 
         // set dev.fuxing.transport.service.TransportServer to trace
-        Spark.before((request, response) -> {
+        engine.addFilter(HttpMethod.before, TransportServerEngine.ALL_PATHS, (request, response) -> {
             if (!request.pathInfo().equals(DEFAULT_HEALTH_PATH)) {
                 logger.trace("{}: {}", request.requestMethod(), request.pathInfo());
             }
         });
 
-        // Setup all services
-        setupRouters();
+        // Setup all services, services register into this server engine
+        TransportServerEngine previous = CURRENT_ENGINE.get();
+        CURRENT_ENGINE.set(engine);
+        try {
+            setupRouters();
+        } finally {
+            CURRENT_ENGINE.set(previous);
+        }
 
         // Default handler for not found
-        Spark.notFound((req, res) -> {
+        engine.notFound((req, res) -> {
             res.header("content-type", TransportRoute.APP_JSON);
             return "{\"code\":404}";
         });
@@ -123,17 +179,17 @@ public class TransportServer implements TransportPath {
      */
     protected void handleException() {
         logger.info("Adding exception handling for TransportException.");
-        Spark.exception(ErrorURL.class, (exception, request, response) -> {
+        engine.exception(ErrorURL.class, (exception, request, response) -> {
             handleException(new TransportContext(request, response), exception);
         });
 
         logger.info("Adding exception handling for TimeoutException.");
-        Spark.exception(SocketTimeoutException.class, (exception, request, response) -> {
+        engine.exception(SocketTimeoutException.class, (exception, request, response) -> {
             handleException(new TransportContext(request, response), new TimeoutException(408, "Request from client to server has timeout.", exception));
         });
 
         logger.info("Adding exception handling for all Exception.");
-        Spark.exception(Exception.class, (exception, request, response) -> {
+        engine.exception(Exception.class, (exception, request, response) -> {
             try {
                 if (mapException(exception)) return;
                 // Unknown exception
@@ -159,22 +215,137 @@ public class TransportServer implements TransportPath {
     }
 
     /**
+     * Error body is pre-encoded and cached in {@link TransportErrorCache}, written directly into the response.
+     *
      * @param context  with request and response
      * @param errorURL exception to write
      */
     protected void handleException(TransportContext context, ErrorURL errorURL) {
-        ObjectNode error = JsonUtils.createObjectNode()
-                .put("code", errorURL.getCode())
-                .put("url", errorURL.getUrl())
-                .put("message", errorURL.getMessage());
-
-
-        ObjectNode body = JsonUtils.wrap("error", error);
+        byte[] body = errorCache.get(errorURL);
 
         Response response = context.response();
-        response.body(JsonUtils.toString(body));
         response.type(TransportRoute.APP_JSON);
         response.status(errorURL.getCode());
+
+        HttpServletResponse raw = response.raw();
+        if (raw.isCommitted()) {
+            logger.warn("Response already committed, unable to write error: {}", errorURL.getMessage());
+            return;
+        }
+
+        try {
+            // Discard any partially written body
+            raw.resetBuffer();
+            raw.setContentLength(body.length);
+            raw.getOutputStream().write(body);
+            // Empty body for Spark to mark the request as consumed
+            response.body("");
+        } catch (IOException e) {
+            logger.warn("Failed to write error body", e);
+        }
+    }
+
+    /**
+     * Limit the number of route invocations in flight, excess requests wait up to maxWait before 503.
+     * Health and metrics paths are not limited, they must answer while the server is saturated.
+     *
+     * @param maxConcurrent max number of route invocations in flight
+     * @param maxWait       max time to wait for a permit
+     * @return limiter registered, for monitoring
+     * @see TransportConcurrencyLimiter
+     */
+    public TransportConcurrencyLimiter withConcurrencyLimit(int maxConcurrent, Duration maxWait) {
+        TransportConcurrencyLimiter limiter = new TransportConcurrencyLimiter(maxConcurrent, maxWait);
+        engine.addFilter(HttpMethod.before, TransportServerEngine.ALL_PATHS, (request, response) -> {
+            if (unlimitedPaths.contains(request.pathInfo())) return;
+            limiter.acquire(new TransportContext(request, response));
+        });
+        // Run on the suspending dispatch too, the permit is released on completion even if never dispatched again
+        engine.addFilter(HttpMethod.afterafter, TransportServerEngine.ALL_PATHS, (AsyncTransportRouteAdapter.Suspending) (request, response) -> {
+            limiter.release(new TransportContext(request, response));
+        });
+        logger.info("Registered concurrency limit: {}", maxConcurrent);
+        return limiter;
+    }
+
+    /**
+     * Compress response body with gzip or deflate, negotiated with "Accept-Encoding".
+     *
+     * @return compression registered, for monitoring
+     * @see TransportCompression
+     */
+    public TransportCompression withCompression() {
+        return withCompression(TransportCompression.builder().build());
+    }
+
+    /**
+     * @param compression to compress response body with
+     * @return compression registered, for monitoring
+     * @see TransportCompression
+     */
+    public TransportCompression withCompression(TransportCompression compression) {
+        engine.addFilter(HttpMethod.before, TransportServerEngine.ALL_PATHS, compression.filter());
+        logger.info("Registered response compression.");
+        return compression;
+    }
+
+    /**
+     * Per route latency, status codes and bytes in/out, served as JSON or Prometheus at "/health/metrics".
+     *
+     * @return metrics registered
+     * @see TransportMetrics
+     */
+    public TransportMetrics withMetrics() {
+        return withMetrics(DEFAULT_METRICS_PATH);
+    }
+
+    /**
+     * Register after {@link #withCompression()} to measure bytes out before compression.
+     *
+     * @param path for the metrics endpoint, "?format=prometheus" for Prometheus text format
+     * @return metrics registered
+     * @see TransportMetrics
+     */
+    public TransportMetrics withMetrics(String path) {
+        TransportMetrics metrics = new TransportMetrics();
+        engine.addFilter(HttpMethod.before, TransportServerEngine.ALL_PATHS, metrics.filter());
+        engine.addRoute(HttpMethod.get, path, metrics.route(), null);
+        unlimitedPaths.add(path);
+        logger.info("Registered withMetrics at path: {}", path);
+        return metrics;
+    }
+
+    /**
+     * Limit the request body size read through {@link dev.fuxing.transport.service.context.ContextBody},
+     * requests with larger "Content-Length" are rejected before the route, chunked requests fail once read past it.
+     *
+     * @param maxBodySize max body size in bytes
+     * @return TransportServer for chaining
+     */
+    public TransportServer withMaxBodySize(long maxBodySize) {
+        engine.addFilter(HttpMethod.before, TransportServerEngine.ALL_PATHS, (request, response) -> {
+            if (request.contentLength() > maxBodySize) {
+                throw new BadRequestException("The request could not be understood by the server due to body larger than " + maxBodySize + " bytes.");
+            }
+            request.attribute(ContextBody.MAX_BODY_SIZE, maxBodySize);
+        });
+        logger.info("Registered max body size: {}", maxBodySize);
+        return this;
+    }
+
+    /**
+     * Wait for the server to be initialized
+     */
+    public void awaitInitialization() {
+        engine.awaitInitialization();
+    }
+
+    /**
+     * Stop the server and clear all routes
+     */
+    public void stop() {
+        engine.stop();
+        this.started = false;
     }
 
     /**
@@ -206,7 +377,7 @@ public class TransportServer implements TransportPath {
      * @throws IllegalStateException when the server is not started
      */
     public int getPort() {
-        return Spark.port();
+        return engine.port();
     }
 
     /**
@@ -260,7 +431,8 @@ public class TransportServer implements TransportPath {
      */
     public TransportServer withHealth(String path, Function<TransportContext, String> check) {
         logger.info("Registered withHealth at path: {}", path);
-        Spark.get(path, (req, res) -> check.apply(new TransportContext(req, res)));
+        engine.addRoute(HttpMethod.get, path, (req, res) -> check.apply(new TransportContext(req, res)), null);
+        unlimitedPaths.add(path);
         return this;
     }
 
@@ -291,7 +463,7 @@ public class TransportServer implements TransportPath {
         TransportServer server = new TransportServer(services) {
             @Override
             protected void setupRouters() {
-                Spark.path(prefixPath, super::setupRouters);
+                engine.path(prefixPath, super::setupRouters);
             }
         };
         server.start();
@@ -314,7 +486,28 @@ public class TransportServer implements TransportPath {
         TransportServer server = new TransportServer(services) {
             @Override
             protected void setupRouters() {
-                Spark.path(prefixPath, super::setupRouters);
+                engine.path(prefixPath, super::setupRouters);
+            }
+        };
+        server.start(port);
+        return server;
+    }
+
+    /**
+     * Start a service in a server with the given engine, several servers can be started in a JVM
+     * with {@link SparkServiceEngine}.
+     *
+     * @param engine     http engine to serve with
+     * @param port       to start service in
+     * @param prefixPath path prefix, e.g. version number
+     * @param services   to start
+     * @return started TransportServer
+     */
+    public static TransportServer start(TransportServerEngine engine, int port, String prefixPath, TransportService... services) {
+        TransportServer server = new TransportServer(engine, services) {
+            @Override
+            protected void setupRouters() {
+                engine.path(prefixPath, super::setupRouters);
             }
         };
         server.start(port);
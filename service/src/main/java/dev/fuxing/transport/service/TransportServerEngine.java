@@ -0,0 +1,109 @@
+package dev.fuxing.transport.service;
+
+import spark.ExceptionHandler;
+import spark.Filter;
+import spark.ResponseTransformer;
+import spark.Route;
+import spark.RouteGroup;
+import spark.route.HttpMethod;
+import spark.utils.SparkUtils;
+
+import javax.annotation.Nullable;
+
+/**
+ * Http engine behind TransportServer, TransportMethod and TransportPath.
+ * <p>
+ * {@link SparkServerEngine} is the default, routes are registered into the static Spark singleton.
+ * {@link SparkServiceEngine} is backed by its own Spark Service instance and Jetty thread pool,
+ * it allows several independent servers in a JVM.
+ * <pre>
+ * {@code
+ * TransportServerEngine engine = SparkServiceEngine.builder()
+ *         .maxThreads(400)
+ *         .minThreads(50)
+ *         .build();
+ *
+ * new TransportServer(engine, new ArticleService()).start(8080);
+ * }
+ * </pre>
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-19
+ * Time: 21:05
+ */
+public interface TransportServerEngine {
+    /**
+     * Path to match all paths, for filters
+     */
+    String ALL_PATHS = SparkUtils.ALL_PATHS;
+
+    /**
+     * Default accept type to match all
+     */
+    String ALL_ACCEPT_TYPE = "*/*";
+
+    /**
+     * @param port to listen on, must be set before any route is added
+     */
+    void port(int port);
+
+    /**
+     * @return port
+     * @throws IllegalStateException when the server is not started
+     */
+    int port();
+
+    /**
+     * @param method      http method, e.g. HttpMethod.get
+     * @param path        of route
+     * @param acceptType  of route, e.g. {@code *}{@code /*}
+     * @param route       to handle request
+     * @param transformer to render the route result, {@code null} if route returns the body
+     */
+    void addRoute(HttpMethod method, String path, String acceptType, Route route, @Nullable ResponseTransformer transformer);
+
+    /**
+     * @param method before, after or afterafter
+     * @param path   of filter, accepts wildcards, {@link #ALL_PATHS} for all
+     * @param filter to run
+     */
+    void addFilter(HttpMethod method, String path, Filter filter);
+
+    /**
+     * @param path       path to add prefix to route
+     * @param routeGroup routes to add with prefix
+     */
+    void path(String path, RouteGroup routeGroup);
+
+    /**
+     * @param route to handle not found
+     */
+    void notFound(Route route);
+
+    /**
+     * @param exceptionClass to handle
+     * @param handler        to handle exception with
+     * @param <T>            type of exception
+     */
+    <T extends Exception> void exception(Class<T> exceptionClass, ExceptionHandler<? super T> handler);
+
+    /**
+     * Wait for the server to be initialized
+     */
+    void awaitInitialization();
+
+    /**
+     * Stop the server and clear all routes
+     */
+    void stop();
+
+    /**
+     * @param method      http method, e.g. HttpMethod.get
+     * @param path        of route
+     * @param route       to handle request
+     * @param transformer to render the route result, {@code null} if route returns the body
+     */
+    default void addRoute(HttpMethod method, String path, Route route, @Nullable ResponseTransformer transformer) {
+        addRoute(method, path, ALL_ACCEPT_TYPE, route, transformer);
+    }
+}
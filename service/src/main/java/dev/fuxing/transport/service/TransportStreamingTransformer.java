@@ -0,0 +1,132 @@
+package dev.fuxing.transport.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streaming transformer, TransportResult is written with a JsonGenerator straight into the servlet OutputStream.
+ * The body is never built as a String, which make it suitable for list endpoints with large payload.
+ * <p>
+ * Chunked mode is opt-in, with flushEvery &#x3E; 0, items in a Collection (e.g. TransportList) are flushed every
+ * flushEvery items, each flush will go out as a chunk with "Transfer-Encoding: chunked".
+ * <pre>
+ * {@code
+ * public class LargeService implements TransportService {
+ *     private static final TransportTransformer toJson = new TransportStreamingTransformer(1000);
+ *
+ *     public TransportTransformer toJson() {
+ *         return toJson;
+ *     }
+ * }
+ * }
+ * </pre>
+ * Subclass that override {@link #toString(Map)} must also override {@link #write(JsonGenerator, Map)},
+ * or opt out of {@link #streaming()} to write the body built with toString.
+ * <p>
+ * Once the response is committed, status code can no longer be changed.
+ * Error thrown while writing the body will be propagated but the client will receive a truncated body.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-06
+ * Time: 14:20
+ */
+public class TransportStreamingTransformer extends TransportTransformer {
+    /**
+     * Marker for body already written, rendered as an empty string for Spark.
+     */
+    private static final Object STREAMED = new Object();
+
+    private final int flushEvery;
+
+    /**
+     * Streaming without chunked flushing, servlet container will flush when it's buffer is full.
+     */
+    public TransportStreamingTransformer() {
+        this(0);
+    }
+
+    /**
+     * @param flushEvery flush every n items in a collection, 0 to disable
+     */
+    public TransportStreamingTransformer(int flushEvery) {
+        if (flushEvery < 0) throw new IllegalArgumentException("flushEvery must be >= 0");
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * @return flush every n items in a collection, 0 if chunked mode is disabled
+     */
+    public int getFlushEvery() {
+        return flushEvery;
+    }
+
+    @Override
+    protected boolean streaming() {
+        return true;
+    }
+
+    @Override
+    public Route route(TransportRoute route) {
+        return (request, response) -> {
+            TransportResult result = route.handle(request, response);
+            HttpServletResponse raw = response.raw();
+
+            try {
+                render(result, raw.getOutputStream());
+            } catch (Exception e) {
+                // Discard partial body so that the exception handler can still write the error
+                if (!raw.isCommitted()) raw.resetBuffer();
+                throw e;
+            }
+            return STREAMED;
+        };
+    }
+
+    @Override
+    protected void write(JsonGenerator generator, Map<String, Object> map) throws IOException {
+        if (flushEvery <= 0) {
+            super.write(generator, map);
+            return;
+        }
+
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+
+            if (entry.getValue() instanceof Collection) {
+                writeChunked(generator, (Collection<?>) entry.getValue());
+            } else {
+                writer().writeValue(generator, entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * @param generator  to write into
+     * @param collection to write as array, flushed every n items
+     * @throws IOException if failed to write
+     */
+    private void writeChunked(JsonGenerator generator, Collection<?> collection) throws IOException {
+        generator.writeStartArray();
+        int count = 0;
+        for (Object item : collection) {
+            writer().writeValue(generator, item);
+            if (++count % flushEvery == 0) {
+                generator.flush();
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public String render(Object model) throws Exception {
+        if (model == STREAMED) return "";
+        return super.render(model);
+    }
+}
@@ -1,8 +1,15 @@
 package dev.fuxing.transport.service;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import dev.fuxing.utils.JsonUtils;
 import spark.ResponseTransformer;
+import spark.Route;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -25,6 +32,34 @@ public class TransportTransformer implements ResponseTransformer {
         return toString(result.getMap());
     }
 
+    /**
+     * Write TransportResult directly into the output stream without building the body as a String.
+     * Jackson recycles the generator buffers per thread, hence the only allocation is the generator itself.
+     * Unless {@link #streaming()} is opted in, the body is built with {@link #toString(Map)} instead.
+     *
+     * @param result to write
+     * @param out    to write into, it will not be closed
+     * @throws IOException if failed to write into out
+     */
+    public void render(TransportResult result, OutputStream out) throws IOException {
+        if (!streaming()) {
+            out.write(render(result).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        try (JsonGenerator generator = JsonUtils.objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            if (result.getMap() == null || result.getMap().isEmpty()) {
+                generator.writeStartObject();
+                generator.writeEndObject();
+                return;
+            }
+
+            write(generator, result.getMap());
+        }
+    }
+
     /**
      * Override this method for custom serialization.
      * - e.g. for simplifying objects
@@ -36,6 +71,47 @@ public class TransportTransformer implements ResponseTransformer {
         return JsonUtils.toString(map);
     }
 
+    /**
+     * Override this method for custom streaming serialization, it should be kept consistent with toString.
+     *
+     * @param generator to write map into
+     * @param map       to write
+     * @throws IOException if failed to write
+     */
+    protected void write(JsonGenerator generator, Map<String, Object> map) throws IOException {
+        writer().writeValue(generator, map);
+    }
+
+    /**
+     * Writer used for streaming, flushing is controlled by the transformer instead of every value written.
+     *
+     * @return writer of {@link JsonUtils#streamWriter()}, it follows {@link JsonUtils#configure} changes
+     */
+    protected static ObjectWriter writer() {
+        return JsonUtils.streamWriter();
+    }
+
+    /**
+     * Override to opt in streaming, subclass that opt in must keep {@link #write(JsonGenerator, Map)}
+     * consistent with {@link #toString(Map)}.
+     *
+     * @return true if {@link #render(TransportResult, OutputStream)} writes with {@link #write(JsonGenerator, Map)},
+     * false to write the body built with {@link #toString(Map)}
+     */
+    protected boolean streaming() {
+        return false;
+    }
+
+    /**
+     * Override to take over how the route is registered with this transformer.
+     *
+     * @param route transport route to register
+     * @return Spark route to register together with this transformer
+     */
+    public Route route(TransportRoute route) {
+        return route;
+    }
+
     /**
      * @see TransportResult
      * @see TransportRoute
@@ -20,6 +20,18 @@ public interface Context {
      */
     Response response();
 
+    /**
+     * @return request scoped snapshot of parsed parameters, created on first use
+     */
+    default ContextParams params() {
+        ContextParams params = get(ContextParams.class);
+        if (params == null) {
+            params = new ContextParams(request());
+            put(params);
+        }
+        return params;
+    }
+
     /**
      * This kinda act as a session data
      *
@@ -5,8 +5,20 @@ import dev.fuxing.err.BadRequestException;
 import dev.fuxing.err.JsonException;
 import dev.fuxing.utils.JsonUtils;
 
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by: Fuxing
@@ -14,12 +26,82 @@ import java.util.function.Function;
  * Time: 19:21
  */
 public interface ContextBody extends Context {
+    /**
+     * Request attribute of max body size in bytes, set by {@link dev.fuxing.transport.service.TransportServer#withMaxBodySize(long)}
+     */
+    String MAX_BODY_SIZE = ContextBody.class.getName() + ".maxBodySize";
+
+    /**
+     * Request attribute of the body bytes, kept once read by {@link #bodyAsBytes()}
+     */
+    String BODY_BYTES = ContextBody.class.getName() + ".bytes";
+
+    /**
+     * @return max body size in bytes, {@link Long#MAX_VALUE} if not limited
+     */
+    default long bodyMaxSize() {
+        Long maxSize = request().attribute(MAX_BODY_SIZE);
+        return maxSize != null ? maxSize : Long.MAX_VALUE;
+    }
+
+    /**
+     * Request body read directly from the servlet stream, Spark only buffer the body if it was already read.
+     * The body can only be streamed once, unless it was already read with {@link #bodyAsBytes()}.
+     *
+     * @return request body stream, guarded by {@link #bodyMaxSize()}
+     * @throws BadRequestException if body is larger than max body size
+     */
+    default InputStream bodyAsInputStream() {
+        byte[] bytes = request().attribute(BODY_BYTES);
+        if (bytes != null) return new ByteArrayInputStream(bytes);
+
+        long maxSize = bodyMaxSize();
+        if (request().contentLength() > maxSize) {
+            throw new BadRequestException("The request could not be understood by the server due to body larger than " + maxSize + " bytes.");
+        }
+
+        try {
+            HttpServletRequest raw = request().raw();
+            InputStream in;
+            if (raw instanceof ServletRequestWrapper) {
+                // Spark wrapper cache the whole body on getInputStream, read the inner stream unless it is already read
+                ServletInputStream unwrapped = ((ServletRequestWrapper) raw).getRequest().getInputStream();
+                in = unwrapped.isFinished() ? new ByteArrayInputStream(request().bodyAsBytes()) : unwrapped;
+            } else {
+                in = raw.getInputStream();
+            }
+            if (maxSize == Long.MAX_VALUE) return in;
+            return new ContextBodyInputStream(in, maxSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Request body read once and kept as a request attribute, repeated calls return the same bytes.
+     *
+     * @return request body bytes, guarded by {@link #bodyMaxSize()}
+     * @throws BadRequestException if body is larger than max body size
+     */
+    default byte[] bodyAsBytes() {
+        byte[] bytes = request().attribute(BODY_BYTES);
+        if (bytes != null) return bytes;
+
+        try (InputStream in = bodyAsInputStream()) {
+            bytes = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        request().attribute(BODY_BYTES, bytes);
+        return bytes;
+    }
+
     /**
      * @return request body as JsonNode
      * @throws JsonException json exception
      */
     default JsonNode bodyAsJson() {
-        return JsonUtils.bytesToTree(request().bodyAsBytes());
+        return JsonUtils.bytesToTree(bodyAsBytes());
     }
 
     /**
@@ -50,16 +132,57 @@ public interface ContextBody extends Context {
      * @return request body as json object
      */
     default <T> T bodyAsObject(Class<T> clazz) {
-        return JsonUtils.bytesToObject(request().bodyAsBytes(), clazz);
+        return JsonUtils.bytesToObject(bodyAsBytes(), clazz);
     }
 
     /**
+     * Elements are bound one at a time from the body stream, without an intermediate JsonNode.
+     *
      * @param clazz clazz
      * @param <T>   Type
      * @return List as type
      */
     default <T> List<T> bodyAsList(Class<T> clazz) {
-        return JsonUtils.toList(bodyAsJson(), clazz);
+        List<T> list = new ArrayList<>();
+        try (ContextBodyIterator<T> iterator = new ContextBodyIterator<>(bodyAsInputStream(), clazz, true)) {
+            iterator.forEachRemaining(list::add);
+        }
+        return list;
+    }
+
+    /**
+     * For bulk ingest of large JSON array, elements are bound lazily as the stream is consumed.
+     * The stream must be consumed within the route, close it to release the body.
+     * <pre>
+     * {@code
+     * try (Stream<Article> stream = ctx.bodyAsStream(Article.class)) {
+     *     stream.forEach(articleRepository::save);
+     * }
+     * }
+     * </pre>
+     *
+     * @param clazz of element
+     * @param <T>   Type
+     * @return Stream of elements in the body array
+     */
+    default <T> Stream<T> bodyAsStream(Class<T> clazz) {
+        ContextBodyIterator<T> iterator = new ContextBodyIterator<>(bodyAsInputStream(), clazz, true);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * NDJSON (application/x-ndjson) body, each line is bound lazily as the stream is consumed.
+     * The stream must be consumed within the route, close it to release the body.
+     *
+     * @param clazz of each line
+     * @param <T>   Type
+     * @return Stream of lines in the body
+     */
+    default <T> Stream<T> bodyAsNdjson(Class<T> clazz) {
+        ContextBodyIterator<T> iterator = new ContextBodyIterator<>(bodyAsInputStream(), clazz, false);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
     }
 
     /**
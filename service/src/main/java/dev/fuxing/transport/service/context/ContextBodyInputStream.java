@@ -0,0 +1,57 @@
+package dev.fuxing.transport.service.context;
+
+import dev.fuxing.err.BadRequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Request body stream guarded by max body size, read past the limit fails with BadRequestException.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-24
+ * Time: 20:05
+ */
+final class ContextBodyInputStream extends FilterInputStream {
+    private final long maxSize;
+    private long count;
+
+    ContextBodyInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) count(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) count(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) {
+        count += n;
+        if (count > maxSize) {
+            throw new BadRequestException("The request could not be understood by the server due to body larger than " + maxSize + " bytes.");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package dev.fuxing.transport.service.context;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.fuxing.err.JsonException;
+import dev.fuxing.utils.JsonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Binds the elements of a JSON array body, or the lines of a NDJSON body, one at a time.
+ * Only the current element is held in memory.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-24
+ * Time: 20:11
+ *
+ * @param <T> type of element
+ */
+final class ContextBodyIterator<T> implements Iterator<T>, AutoCloseable {
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private final boolean array;
+    private JsonToken next;
+
+    /**
+     * @param in    body stream
+     * @param clazz of element
+     * @param array true for JSON array body, false for NDJSON body of root level values
+     */
+    ContextBodyIterator(InputStream in, Class<T> clazz, boolean array) {
+        this.array = array;
+        try {
+            this.parser = JsonUtils.objectMapper.getFactory().createParser(in);
+            this.reader = JsonUtils.reader(clazz);
+
+            JsonToken token = parser.nextToken();
+            if (!array) {
+                this.next = token;
+                return;
+            }
+            if (token == null) {
+                // Empty body is an empty list
+                this.next = JsonToken.END_ARRAY;
+                return;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonException("Your JSON is malformed.", null);
+            }
+            this.next = parser.nextToken();
+        } catch (IOException e) {
+            throw new JsonException("Your JSON is malformed.", e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!array) return next != null;
+        if (next == null) throw new JsonException("Your JSON is malformed.", null);
+        return next != JsonToken.END_ARRAY;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        try {
+            T value = reader.readValue(parser);
+            next = parser.nextToken();
+            return value;
+        } catch (IOException e) {
+            throw new JsonException("Your JSON is malformed.", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -5,8 +5,6 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Created by: Fuxing
@@ -32,32 +30,7 @@ public interface ContextCursor extends Context {
      */
     @NotNull
     default TransportCursor queryCursor(String name) {
-        TransportCursor.Builder builder = TransportCursor.builder();
-
-        String cursor = request().queryParams(name);
-        if (StringUtils.isNotBlank(cursor)) {
-            builder.base64(cursor);
-        }
-
-        builder.putAll(queryParamsMap(name));
-        return builder.build();
-    }
-
-    /**
-     * @param ignores key to ignore
-     * @return Map parameters with ignores trimmed out
-     */
-    @NotNull
-    private Map<String, String> queryParamsMap(String... ignores) {
-        Map<String, String> map = new HashMap<>();
-
-        request().queryParams().forEach(s -> {
-            for (String ignore : ignores) {
-                if (s.equals(ignore)) return;
-            }
-            map.put(s, request().queryParams(s));
-        });
-        return map;
+        return params().queryCursor(name);
     }
 
     /**
@@ -1,5 +1,7 @@
 package dev.fuxing.transport.service.context;
 
+import javax.annotation.Nullable;
+
 /**
  * Created by: Fuxing
  * Date: 2019-04-24
@@ -13,4 +15,47 @@ public interface ContextHeader extends Context {
     default String getHeader(String name) {
         return request().headers(name);
     }
+
+    /**
+     * Route supplied version key for conditional GET, e.g. an entity version column.
+     * "ETag" header is set to the quoted version, with {@code TransportEtagTransformer} the body is not hashed.
+     *
+     * @param version of entity, must not contain '"'
+     * @return true if "If-None-Match" matches, route should return {@code TransportResult.notModified()}
+     */
+    default boolean notModified(String version) {
+        String etag = '"' + version + '"';
+        response().header("ETag", etag);
+        return etagMatches(getHeader("If-None-Match"), etag);
+    }
+
+    /**
+     * Weak comparison as required for "If-None-Match", "W/" prefix are ignored.
+     *
+     * @param ifNoneMatch header value, e.g. {@code "a", W/"b"} or {@code *}
+     * @param etag        quoted etag
+     * @return true if any of the entity tag matches
+     */
+    static boolean etagMatches(@Nullable String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        int start = 0;
+        int length = ifNoneMatch.length();
+        while (start < length) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) end = length;
+
+            int from = start;
+            int to = end;
+            while (from < to && ifNoneMatch.charAt(from) == ' ') from++;
+            while (to > from && ifNoneMatch.charAt(to - 1) == ' ') to--;
+            if (ifNoneMatch.startsWith("W/", from)) from += 2;
+
+            if (to - from == 1 && ifNoneMatch.charAt(from) == '*') return true;
+            if (to - from == opaque.length() && ifNoneMatch.startsWith(opaque, from)) return true;
+            start = end + 1;
+        }
+        return false;
+    }
 }
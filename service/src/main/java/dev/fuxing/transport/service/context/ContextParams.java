@@ -0,0 +1,173 @@
+package dev.fuxing.transport.service.context;
+
+import dev.fuxing.err.BadRequestException;
+import dev.fuxing.transport.TransportCursor;
+import dev.fuxing.transport.service.TransportRouteTable;
+import org.apache.commons.lang3.StringUtils;
+import spark.Request;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Request scoped snapshot of parsed parameters, each query, path param and cursor is parsed at most once.
+ * It is stored as a request attribute, contexts and helpers created for the same request share it.
+ * <p>
+ * Path params are only cached when matched by a {@link TransportRouteTable},
+ * Spark params differ between filters and routes of the same request, they are read by {@link ContextPath}
+ * from the request of each context instead.
+ * <p>
+ * Created by: Fuxing
+ * Date: 2020-06-23
+ * Time: 19:36
+ */
+public final class ContextParams {
+    private final Request request;
+
+    private Map<String, Object> longs;
+    private Map<String, Object> ints;
+    private Map<String, Object> doubles;
+    private Map<String, String> paths;
+    private Map<String, TransportCursor> cursors;
+    private Set<String> fields;
+
+    /**
+     * @param request to read params from
+     */
+    public ContextParams(Request request) {
+        this.request = request;
+    }
+
+    /**
+     * @param name of query string
+     * @return Long value, null if blank or not found
+     * @throws BadRequestException if malformed
+     */
+    @Nullable
+    public Long queryLong(String name) throws BadRequestException {
+        if (longs == null) longs = new HashMap<>(4);
+        Object value = longs.get(name);
+        if (value == null) {
+            value = parse(name, Long.class);
+            longs.put(name, value);
+        }
+        return value == Blank.INSTANCE ? null : (Long) value;
+    }
+
+    /**
+     * @param name of query string
+     * @return Integer value, null if blank or not found
+     * @throws BadRequestException if malformed
+     */
+    @Nullable
+    public Integer queryInt(String name) throws BadRequestException {
+        if (ints == null) ints = new HashMap<>(4);
+        Object value = ints.get(name);
+        if (value == null) {
+            value = parse(name, Integer.class);
+            ints.put(name, value);
+        }
+        return value == Blank.INSTANCE ? null : (Integer) value;
+    }
+
+    /**
+     * @param name of query string
+     * @return Double value, null if blank or not found
+     * @throws BadRequestException if malformed
+     */
+    @Nullable
+    public Double queryDouble(String name) throws BadRequestException {
+        if (doubles == null) doubles = new HashMap<>(4);
+        Object value = doubles.get(name);
+        if (value == null) {
+            value = parse(name, Double.class);
+            doubles.put(name, value);
+        }
+        return value == Blank.INSTANCE ? null : (Double) value;
+    }
+
+    /**
+     * @return fields in Set String, NonNull
+     */
+    public Set<String> queryFields() {
+        if (fields == null) {
+            String value = request.queryParams("fields");
+            if (StringUtils.isBlank(value)) value = "";
+            fields = Set.of(value.split(", *"));
+        }
+        return fields;
+    }
+
+    /**
+     * When a {@link dev.fuxing.transport.TransportCursorSigner} is set, verified values of the cursor
+     * take precedence over query string of the same key, they cannot be tampered with.
+     *
+     * @param name of the cursor
+     * @return Cursor from base64 of name and all other query string
+     */
+    public TransportCursor queryCursor(String name) {
+        if (cursors == null) cursors = new HashMap<>(2);
+        TransportCursor cursor = cursors.get(name);
+        if (cursor != null) return cursor;
+
+        Map<String, String> map = new HashMap<>();
+        for (String key : request.queryParams()) {
+            if (key.equals(name)) continue;
+            map.put(key, request.queryParams(key));
+        }
+
+        TransportCursor.Builder builder = TransportCursor.builder();
+        String base64 = request.queryParams(name);
+        if (StringUtils.isBlank(base64)) {
+            builder.putAll(map);
+        } else if (TransportCursor.getSigner() != null) {
+            builder.putAll(map).base64(base64);
+        } else {
+            builder.base64(base64).putAll(map);
+        }
+
+        cursor = builder.build();
+        cursors.put(name, cursor);
+        return cursor;
+    }
+
+    /**
+     * @param name of path param
+     * @return decoded value, null if not found or the request is not matched by a {@link TransportRouteTable}
+     */
+    @Nullable
+    public String path(String name) {
+        TransportRouteTable.Match<?> match = request.attribute(TransportRouteTable.MATCH);
+        if (match == null) return null;
+
+        if (paths == null) paths = new HashMap<>(4);
+        String value = paths.get(name);
+        if (value == null) {
+            value = match.param(name);
+            if (value != null) paths.put(name, value);
+        }
+        return value;
+    }
+
+    private Object parse(String name, Class<?> clazz) {
+        String value = request.queryParams(name);
+        if (StringUtils.isBlank(value)) return Blank.INSTANCE;
+
+        try {
+            if (clazz == Long.class) return Long.parseLong(value);
+            if (clazz == Integer.class) return Integer.parseInt(value);
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
+        }
+    }
+
+    /**
+     * Cached marker for blank or not found
+     */
+    private enum Blank {
+        INSTANCE
+    }
+}
@@ -1,6 +1,7 @@
 package dev.fuxing.transport.service.context;
 
 import dev.fuxing.err.BadRequestException;
+import dev.fuxing.transport.service.TransportRouteTable;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -25,7 +26,7 @@ public interface ContextPath extends Context {
      */
     @SuppressWarnings("unchecked")
     default <T> T pathObject(String name, T defaultValue, Class<T> clazz) {
-        String value = request().params(name);
+        String value = pathParam(name);
         if (StringUtils.isBlank(value)) return defaultValue;
         if (clazz == String.class) return (T) value;
 
@@ -131,7 +132,7 @@ public interface ContextPath extends Context {
      * @throws BadRequestException path param not found
      */
     default String pathString(String name) throws BadRequestException {
-        String value = request().params(name);
+        String value = pathParam(name);
         if (StringUtils.isNotBlank(value)) {
             return value;
         }
@@ -145,8 +146,18 @@ public interface ContextPath extends Context {
      * @return String value, or default
      */
     default String pathString(String name, String defaultValue) {
-        String value = request().params(name);
+        String value = pathParam(name);
         if (value != null) return value;
         return defaultValue;
     }
+
+    /**
+     * @param name of path param
+     * @return decoded value, null if not found
+     */
+    private String pathParam(String name) {
+        // Spark params differ between filters and routes, read from the request of this context
+        if (request().attribute(TransportRouteTable.MATCH) == null) return request().params(name);
+        return params().path(name);
+    }
 }
@@ -21,12 +21,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default long queryLong(String name) throws BadRequestException {
-        try {
-            String value = queryString(name);
-            return Long.parseLong(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Long value = params().queryLong(name);
+        if (value != null) return value;
+        throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
     }
 
     /**
@@ -36,13 +33,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default long queryLong(String name, long defaultValue) throws BadRequestException {
-        try {
-            String value = request().queryParams(name);
-            if (StringUtils.isBlank(value)) return defaultValue;
-            return Long.parseLong(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Long value = params().queryLong(name);
+        if (value == null) return defaultValue;
+        return value;
     }
 
     /**
@@ -51,12 +44,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default int queryInt(String name) throws BadRequestException {
-        try {
-            String value = queryString(name);
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Integer value = params().queryInt(name);
+        if (value != null) return value;
+        throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
     }
 
     /**
@@ -66,13 +56,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default int queryInt(String name, int defaultValue) throws BadRequestException {
-        try {
-            String value = request().queryParams(name);
-            if (StringUtils.isBlank(value)) return defaultValue;
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Integer value = params().queryInt(name);
+        if (value == null) return defaultValue;
+        return value;
     }
 
     /**
@@ -91,7 +77,7 @@ public interface ContextQuery extends Context {
      */
     @NotNull
     default Set<String> queryFields() {
-        return Set.of(queryString("fields", "").split(", *"));
+        return params().queryFields();
     }
 
     /**
@@ -100,12 +86,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default double queryDouble(String name) throws BadRequestException {
-        try {
-            String value = queryString(name);
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Double value = params().queryDouble(name);
+        if (value != null) return value;
+        throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
     }
 
     /**
@@ -115,13 +98,9 @@ public interface ContextQuery extends Context {
      * @throws BadRequestException query param not found
      */
     default double queryDouble(String name, double defaultValue) throws BadRequestException {
-        try {
-            String value = request().queryParams(name);
-            if (StringUtils.isBlank(value)) return defaultValue;
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException("The request could not be understood by the server due to malformed " + name + ".");
-        }
+        Double value = params().queryDouble(name);
+        if (value == null) return defaultValue;
+        return value;
     }
 
     /**
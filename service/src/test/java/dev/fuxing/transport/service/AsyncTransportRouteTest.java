@@ -0,0 +1,136 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.err.BadRequestException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 10:21
+ */
+class AsyncTransportRouteTest {
+    private static final int PORT = 34318;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static final AtomicInteger before = new AtomicInteger();
+    private static final AtomicInteger after = new AtomicInteger();
+    private static final AtomicInteger afterAfter = new AtomicInteger();
+
+    private static TransportServer server;
+    private static CompletableFuture<Object> pending;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                BEFORE("/async/*", cxt -> before.incrementAndGet());
+                AFTER("/async/*", cxt -> {
+                    after.incrementAndGet();
+                    cxt.response().header("X-After", "1");
+                });
+                AFTER_AFTER("/async/*", cxt -> afterAfter.incrementAndGet());
+
+                GET("/async/completed", Duration.ofSeconds(5), cxt -> CompletableFuture.completedFuture(Map.of("a", 1)));
+                GET("/async/pending", Duration.ofSeconds(5), cxt -> pending);
+                GET("/async/timeout", Duration.ofMillis(100), cxt -> new CompletableFuture<>());
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    @BeforeEach
+    void reset() {
+        before.set(0);
+        after.set(0);
+        afterAfter.set(0);
+        pending = new CompletableFuture<>();
+    }
+
+    static CompletableFuture<HttpResponse<String>> get(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    static void assertFilters(int count) throws InterruptedException {
+        // After after filters run once the response is sent
+        for (int i = 0; i < 100 && afterAfter.get() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, before.get());
+        assertEquals(count, after.get());
+        assertEquals(count, afterAfter.get());
+    }
+
+    @Test
+    void completed() throws Exception {
+        HttpResponse<String> response = get("/async/completed").get();
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"data\":{\"a\":1}}", response.body());
+        assertFilters(1);
+    }
+
+    @Test
+    void pending() throws Exception {
+        CompletableFuture<HttpResponse<String>> future = get("/async/pending");
+        for (int i = 0; i < 100 && before.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(0, after.get());
+
+        pending.complete(Map.of("b", 2));
+        HttpResponse<String> response = future.get();
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"data\":{\"b\":2}}", response.body());
+        assertEquals("1", response.headers().firstValue("X-After").orElse(null));
+        assertFilters(1);
+    }
+
+    @Test
+    void exception() throws Exception {
+        CompletableFuture<HttpResponse<String>> future = get("/async/pending");
+        for (int i = 0; i < 100 && before.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        pending.completeExceptionally(new BadRequestException("Failed"));
+        HttpResponse<String> response = future.get();
+        assertEquals(400, response.statusCode());
+        assertEquals(1, before.get());
+        for (int i = 0; i < 100 && afterAfter.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, afterAfter.get());
+    }
+
+    @Test
+    void timeout() throws Exception {
+        HttpResponse<String> response = get("/async/timeout").get();
+        assertEquals(408, response.statusCode());
+        assertEquals(1, before.get());
+        for (int i = 0; i < 100 && afterAfter.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, afterAfter.get());
+    }
+}
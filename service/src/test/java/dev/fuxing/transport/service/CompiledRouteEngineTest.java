@@ -0,0 +1,90 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.utils.JsonUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.route.HttpMethod;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 22:05
+ */
+class CompiledRouteEngineTest {
+    private static final int PORT = 34323;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static CompiledRouteEngine engine;
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new CompiledRouteEngine(SparkServiceEngine.builder().build());
+        server = TransportServer.start(engine, PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                // Splat routes are registered on the delegate, before any compiled route of the method
+                GET("/files/*", cxt -> "files");
+
+                GET("/", cxt -> "root");
+                GET("/users/:id", cxt -> "user " + cxt.pathString("id"));
+                GET("/users/me", cxt -> "me");
+                PATH("/v1", () -> {
+                    GET("/items/:id", cxt -> "item " + cxt.pathString("id"));
+                });
+
+                // Shadowed by the GET catch-all of the compiled routes
+                GET("/late/*", cxt -> "late");
+                // No compiled POST route, served by the delegate
+                POST("/late/*", cxt -> "late");
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    static String data(String method, String path) throws Exception {
+        HttpResponse<String> response = send(method, path);
+        assertEquals(200, response.statusCode(), path);
+        return JsonUtils.jsonToTree(response.body()).path("data").asText();
+    }
+
+    @Test
+    void compiled() throws Exception {
+        assertEquals(4, engine.table(HttpMethod.get).size());
+
+        assertEquals("root", data("GET", "/"));
+        assertEquals("user 123", data("GET", "/users/123"));
+        assertEquals("user a b", data("GET", "/users/a%20b"));
+        assertEquals("me", data("GET", "/users/me"));
+        assertEquals("item 1", data("GET", "/v1/items/1"));
+        assertEquals(404, send("GET", "/users").statusCode());
+        assertEquals(404, send("GET", "/users/1/images").statusCode());
+    }
+
+    @Test
+    void shadowing() throws Exception {
+        assertEquals("files", data("GET", "/files/a/b"));
+        assertEquals(404, send("GET", "/late/a").statusCode());
+        assertEquals("late", data("POST", "/late/a"));
+    }
+}
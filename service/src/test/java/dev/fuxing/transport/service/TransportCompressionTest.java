@@ -0,0 +1,166 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.transport.TransportList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-26
+ * Time: 21:02
+ */
+class TransportCompressionTest {
+    private static final int PORT = 34314;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+    private static TransportCompression compression;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                GET("/small", cxt -> Map.of("a", 1));
+                GET("/big", cxt -> items(2000, "big"));
+                GET("/versioned/:name", cxt -> {
+                    // Same etag across resources, e.g. etag from a version number
+                    cxt.response().header("ETag", "\"1\"");
+                    return items(2000, cxt.pathString("name") + cxt.queryString("q", ""));
+                });
+            }
+        }, new TransportService() {
+            private final TransportTransformer transformer = new TransportStreamingTransformer(100);
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/stream", cxt -> new TransportList<>(items(20000, "stream"), Map.of()));
+            }
+        });
+        compression = server.withCompression();
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static List<String> items(int size, String prefix) {
+        return IntStream.range(0, size).mapToObj(i -> prefix + '-' + i).collect(Collectors.toList());
+    }
+
+    static HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .header("Accept-Encoding", acceptEncoding)
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    static String body(HttpResponse<byte[]> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        ByteArrayInputStream in = new ByteArrayInputStream(response.body());
+        switch (encoding) {
+            case "gzip":
+                return new String(new GZIPInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+            case "deflate":
+                return new String(new InflaterInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+            default:
+                return new String(response.body(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void negotiate() {
+        TransportCompression compression = TransportCompression.builder().build();
+
+        assertEquals("gzip", compression.negotiate("gzip, deflate, br"));
+        assertEquals("gzip", compression.negotiate("deflate, gzip"));
+        assertEquals("deflate", compression.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", compression.negotiate("gzip;q=0, deflate;q=0.1"));
+        assertEquals("gzip", compression.negotiate("*"));
+
+        assertNull(compression.negotiate(null));
+        assertNull(compression.negotiate("identity"));
+        assertNull(compression.negotiate("br, gzip;q=0"));
+    }
+
+    @Test
+    void negotiatePreference() {
+        TransportCompression compression = TransportCompression.builder()
+                .encodings(TransportCompression.DEFLATE, TransportCompression.GZIP)
+                .build();
+
+        assertEquals("deflate", compression.negotiate("gzip, deflate"));
+        assertEquals("gzip", compression.negotiate("gzip"));
+    }
+
+    @Test
+    void small() throws Exception {
+        HttpResponse<byte[]> response = get("/small", "gzip");
+        assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+        assertEquals("{\"data\":{\"a\":1}}", body(response));
+    }
+
+    @Test
+    void compressed() throws Exception {
+        String identity = body(get("/big", "identity"));
+        assertTrue(identity.contains("big-1999"));
+
+        for (String encoding : List.of("gzip", "deflate")) {
+            HttpResponse<byte[]> response = get("/big", encoding);
+            assertEquals(encoding, response.headers().firstValue("Content-Encoding").orElse(null));
+            assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null));
+            assertTrue(response.body().length < identity.length());
+            assertEquals(identity, body(response));
+        }
+    }
+
+    @Test
+    void streaming() throws Exception {
+        HttpResponse<byte[]> response = get("/stream", "gzip");
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+
+        String body = body(response);
+        assertTrue(body.startsWith("{\"data\":[\"stream-0\""));
+        assertTrue(body.endsWith("\"stream-19999\"]}"));
+    }
+
+    @Test
+    void cache() throws Exception {
+        long hits = compression.getCacheHits();
+        HttpResponse<byte[]> response = get("/versioned/a", "gzip");
+        assertEquals("W/\"1\"", response.headers().firstValue("ETag").orElse(null));
+        assertTrue(body(response).contains("\"a-0\""));
+        assertTrue(body(get("/versioned/a", "gzip")).contains("\"a-0\""));
+        assertEquals(hits + 1, compression.getCacheHits());
+
+        // Same etag, different resources are not served from each other cache
+        assertTrue(body(get("/versioned/b", "gzip")).contains("\"b-0\""));
+        assertTrue(body(get("/versioned/a?q=1", "gzip")).contains("\"a1-0\""));
+        assertTrue(body(get("/versioned/a", "deflate")).contains("\"a-0\""));
+        assertEquals(hits + 1, compression.getCacheHits());
+    }
+}
@@ -0,0 +1,113 @@
+package dev.fuxing.transport.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-29
+ * Time: 15:02
+ */
+class TransportConcurrencyLimiterTest {
+    private static final int PORT = 34317;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+    private static TransportConcurrencyLimiter limiter;
+    private static CompletableFuture<Map<String, Object>> pending;
+    private static CompletableFuture<Map<String, Object>> abandoned;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                GET("/sync", cxt -> Map.of("a", 1));
+                GET("/async", Duration.ofSeconds(10), cxt -> pending);
+                GET("/abandoned", Duration.ofMillis(300), cxt -> abandoned);
+            }
+        });
+        server.withHealth();
+        server.withMetrics();
+        limiter = server.withConcurrencyLimit(1, Duration.ofMillis(50));
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static CompletableFuture<HttpResponse<String>> get(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void async() throws Exception {
+        assertEquals(200, get("/sync").get().statusCode());
+        assertEquals(0, limiter.getInFlight());
+
+        pending = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> async = get("/async");
+        for (int i = 0; i < 100 && limiter.getInFlight() == 0; i++) {
+            Thread.sleep(20);
+        }
+        // Permit is held after the first dispatch returns, until the async request completes
+        Thread.sleep(200);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(503, get("/sync").get().statusCode());
+
+        // Health and metrics are not limited
+        assertEquals(200, get("/health/check").get().statusCode());
+        assertEquals(200, get("/health/metrics").get().statusCode());
+
+        pending.complete(Map.of("b", 2));
+        assertEquals(200, async.get().statusCode());
+        assertEquals("{\"data\":{\"b\":2}}", async.get().body());
+
+        for (int i = 0; i < 100 && limiter.getInFlight() != 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(200, get("/sync").get().statusCode());
+    }
+
+    @Test
+    void disconnected() throws Exception {
+        abandoned = new CompletableFuture<>();
+        try (Socket socket = new Socket("localhost", PORT)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /abandoned HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            for (int i = 0; i < 100 && limiter.getInFlight() == 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, limiter.getInFlight());
+        }
+
+        // Client is gone, the suspended request times out and the permit is released
+        for (int i = 0; i < 100 && limiter.getInFlight() != 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(abandoned.isCancelled());
+        assertEquals(200, get("/sync").get().statusCode());
+    }
+}
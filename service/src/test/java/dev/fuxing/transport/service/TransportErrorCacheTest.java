@@ -0,0 +1,130 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.err.BadRequestException;
+import dev.fuxing.transport.StacklessErrorURL;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 18:05
+ */
+class TransportErrorCacheTest {
+    private static final int PORT = 34319;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                GET("/bad", cxt -> {
+                    throw new BadRequestException("The request could not be understood by the server due to malformed bad.");
+                });
+                GET("/stackless", cxt -> {
+                    throw new StacklessErrorURL(404, "https://err.fuxing.dev/NotFoundException", "Entity \"a\" not found.");
+                });
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void cachedResponse() throws Exception {
+        for (String path : new String[]{"/bad", "/stackless"}) {
+            server.errorCache.clear();
+            HttpResponse<String> uncached = get(path);
+            assertEquals(1, server.errorCache.size());
+            HttpResponse<String> cached = get(path);
+
+            assertEquals(uncached.statusCode(), cached.statusCode());
+            assertEquals(uncached.body(), cached.body());
+            assertEquals(uncached.headers().firstValue("Content-Type"), cached.headers().firstValue("Content-Type"));
+            assertEquals(uncached.headers().firstValue("Content-Length"), cached.headers().firstValue("Content-Length"));
+        }
+
+        HttpResponse<String> response = get("/stackless");
+        assertEquals(404, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        assertEquals("{\"error\":{\"code\":404,\"url\":\"https://err.fuxing.dev/NotFoundException\",\"message\":\"Entity \\\"a\\\" not found.\"}}", response.body());
+    }
+
+    @Test
+    void cached() {
+        TransportErrorCache cache = new TransportErrorCache();
+        TransportErrorCache disabled = new TransportErrorCache(0);
+
+        byte[] body = cache.get(400, "https://err.fuxing.dev/BadRequestException", "Bad é");
+        assertSame(body, cache.get(400, "https://err.fuxing.dev/BadRequestException", "Bad é"));
+        assertArrayEquals(body, disabled.get(400, "https://err.fuxing.dev/BadRequestException", "Bad é"));
+        assertEquals("{\"error\":{\"code\":400,\"url\":\"https://err.fuxing.dev/BadRequestException\",\"message\":\"Bad é\"}}",
+                new String(body, StandardCharsets.UTF_8));
+        assertEquals(0, disabled.size());
+    }
+
+    @Test
+    void evicted() {
+        TransportErrorCache cache = new TransportErrorCache(2);
+        for (int i = 0; i < 100; i++) {
+            byte[] body = cache.get(400, "url", "message " + i);
+            assertEquals("{\"error\":{\"code\":400,\"url\":\"url\",\"message\":\"message " + i + "\"}}",
+                    new String(body, StandardCharsets.UTF_8));
+            assertSame(body, cache.get(400, "url", "message " + i));
+            assertTrue(cache.size() <= 2);
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        TransportErrorCache cache = new TransportErrorCache(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String message = "message " + (i % 32);
+                        byte[] body = cache.get(i % 3 + 400, "url", message);
+                        assertTrue(new String(body, StandardCharsets.UTF_8).contains("\"code\":" + (i % 3 + 400) + ",\"url\":\"url\",\"message\":\"" + message + "\""));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 8);
+    }
+}
@@ -0,0 +1,127 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.transport.service.context.ContextHeader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 23:40
+ */
+class TransportEtagTransformerTest {
+    private static final int PORT = 34324;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            private final TransportTransformer transformer = new TransportEtagTransformer();
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/articles/:id", cxt -> Map.of("id", cxt.pathString("id")));
+                GET("/versioned/:version", cxt -> {
+                    if (cxt.notModified(cxt.pathString("version"))) return TransportResult.notModified();
+                    return Map.of("version", cxt.pathString("version"));
+                });
+                POST("/articles", cxt -> Map.of("id", "created"));
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static HttpResponse<String> send(String method, String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (ifNoneMatch != null) builder.header("If-None-Match", ifNoneMatch);
+        return CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void etagMatches() {
+        assertTrue(ContextHeader.etagMatches("\"a\"", "\"a\""));
+        assertTrue(ContextHeader.etagMatches("W/\"a\"", "\"a\""));
+        assertTrue(ContextHeader.etagMatches("\"a\"", "W/\"a\""));
+        assertTrue(ContextHeader.etagMatches("\"b\", W/\"a\"", "\"a\""));
+        assertTrue(ContextHeader.etagMatches(" \"b\" ,\"a\" ", "\"a\""));
+        assertTrue(ContextHeader.etagMatches("*", "\"a\""));
+
+        assertFalse(ContextHeader.etagMatches(null, "\"a\""));
+        assertFalse(ContextHeader.etagMatches("", "\"a\""));
+        assertFalse(ContextHeader.etagMatches("\"ab\"", "\"a\""));
+        assertFalse(ContextHeader.etagMatches("\"b\", \"c\"", "\"a\""));
+        assertFalse(ContextHeader.etagMatches("a", "\"a\""));
+    }
+
+    @Test
+    void hashed() throws Exception {
+        HttpResponse<String> response = send("GET", "/articles/1", null);
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"data\":{\"id\":\"1\"}}", response.body());
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+
+        // Same body, same etag
+        assertEquals(etag, send("GET", "/articles/1", null).headers().firstValue("ETag").orElse(null));
+        assertNotEquals(etag, send("GET", "/articles/2", null).headers().firstValue("ETag").orElse(null));
+
+        for (String ifNoneMatch : List.of(etag, "W/" + etag, "\"other\", " + etag, "*")) {
+            HttpResponse<String> notModified = send("GET", "/articles/1", ifNoneMatch);
+            assertEquals(304, notModified.statusCode(), ifNoneMatch);
+            assertEquals("", notModified.body());
+            assertEquals(etag, notModified.headers().firstValue("ETag").orElse(null));
+        }
+
+        HttpResponse<String> modified = send("GET", "/articles/1", "\"other\"");
+        assertEquals(200, modified.statusCode());
+        assertEquals("{\"data\":{\"id\":\"1\"}}", modified.body());
+    }
+
+    @Test
+    void versioned() throws Exception {
+        HttpResponse<String> response = send("GET", "/versioned/3", null);
+        assertEquals(200, response.statusCode());
+        assertEquals("\"3\"", response.headers().firstValue("ETag").orElse(null));
+        assertEquals("{\"data\":{\"version\":\"3\"}}", response.body());
+
+        HttpResponse<String> notModified = send("GET", "/versioned/3", "W/\"3\"");
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+
+        HttpResponse<String> modified = send("GET", "/versioned/4", "\"3\"");
+        assertEquals(200, modified.statusCode());
+        assertEquals("\"4\"", modified.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    void unsafe() throws Exception {
+        HttpResponse<String> response = send("POST", "/articles", "*");
+        assertEquals(200, response.statusCode());
+        assertFalse(response.headers().firstValue("ETag").isPresent());
+        assertEquals("{\"data\":{\"id\":\"created\"}}", response.body());
+    }
+}
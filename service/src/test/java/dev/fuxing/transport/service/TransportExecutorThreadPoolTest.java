@@ -0,0 +1,60 @@
+package dev.fuxing.transport.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 23:10
+ */
+class TransportExecutorThreadPoolTest {
+
+    @Test
+    void join() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            TransportExecutorThreadPool threadPool = new TransportExecutorThreadPool(executor);
+
+            // Restarted pool is joined again until the next stop
+            for (int i = 0; i < 2; i++) {
+                threadPool.start();
+                CompletableFuture<Void> joined = CompletableFuture.runAsync(() -> {
+                    try {
+                        threadPool.join();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+
+                Thread.sleep(100);
+                assertFalse(joined.isDone());
+
+                threadPool.stop();
+                joined.get(5, TimeUnit.SECONDS);
+                assertFalse(executor.isShutdown());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void execute() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TransportExecutorThreadPool threadPool = new TransportExecutorThreadPool(executor);
+            CompletableFuture<Integer> threads = new CompletableFuture<>();
+            threadPool.execute(() -> threads.complete(threadPool.getThreads()));
+            assertEquals(1, threads.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.transport.TransportList;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-27
+ * Time: 19:25
+ */
+class TransportMetricsTest {
+
+    @Test
+    void index() {
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = TransportMetrics.Histogram.index(value);
+            assertTrue(value <= TransportMetrics.Histogram.highest(index));
+            if (index > 0) {
+                assertTrue(value > TransportMetrics.Histogram.highest(index - 1));
+            }
+        }
+    }
+
+    @Test
+    void percentile() {
+        TransportMetrics.Histogram histogram = new TransportMetrics.Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean());
+
+        // Accurate to 1/16 of the value
+        assertEquals(5000, histogram.getPercentile(0.5), 5000 / 16.0);
+        assertEquals(9900, histogram.getPercentile(0.99), 9900 / 16.0);
+        assertEquals(9990, histogram.getPercentile(0.999), 9990 / 16.0);
+        assertEquals(10_000, histogram.getPercentile(1.0));
+    }
+
+    @Test
+    void empty() {
+        TransportMetrics.Histogram histogram = new TransportMetrics.Histogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    void bounded() {
+        TransportMetrics metrics = new TransportMetrics();
+        metrics.record("FOO", "/a", 200, 1, 0, 0);
+        metrics.record("BAR", "/a", 200, 1, 0, 0);
+        assertEquals(2, metrics.getRoute("OTHER", "/a").getHistogram().getCount());
+
+        for (int i = 0; i < TransportMetrics.MAX_ROUTES * 2; i++) {
+            metrics.record("GET", "/" + i, 200, 1, 0, 0);
+        }
+        assertEquals(TransportMetrics.MAX_ROUTES + 1, metrics.size());
+        assertEquals(TransportMetrics.MAX_ROUTES + 1, metrics.getRoute("OTHER", "").getHistogram().getCount());
+    }
+
+    @Test
+    void aborted() throws Exception {
+        int port = 34316;
+        TransportServer server = TransportServer.start(SparkServiceEngine.builder().build(), port, "", new TransportService() {
+            @Override
+            public void route() {
+                GET("/small", cxt -> Map.of("a", 1));
+            }
+        }, new TransportService() {
+            private final TransportTransformer transformer = new TransportStreamingTransformer(100);
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/large", cxt -> new TransportList<>(IntStream.range(0, 2_000_000)
+                        .mapToObj(i -> "item-" + i)
+                        .collect(Collectors.toList()), Map.of()));
+            }
+        });
+        TransportMetrics metrics = server.withMetrics();
+        server.awaitInitialization();
+
+        try {
+            // Requests on the same connection are each recorded once
+            try (Socket socket = new Socket("localhost", port)) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+                for (int i = 0; i < 3; i++) {
+                    out.write("GET /small HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    assertTrue(in.read(new byte[4096]) > 0);
+                    Thread.sleep(100);
+                }
+            }
+
+            // Connection closed by client while the response is being written
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.getOutputStream().write("GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                assertTrue(socket.getInputStream().read(new byte[1024]) > 0);
+                socket.setSoLinger(true, 0);
+            }
+
+            for (int i = 0; i < 100 && metrics.getInFlight() != 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(0, metrics.getInFlight());
+            assertEquals(3, metrics.getRoute("GET", "/small").getHistogram().getCount());
+            assertEquals(1, metrics.getRoute("GET", "/large").getHistogram().getCount());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.transport.TransportList;
+import dev.fuxing.transport.client.TransportRequest;
+import dev.fuxing.utils.JsonUtils;
+import org.apache.http.client.fluent.Request;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 21:10
+ */
+class TransportNdjsonTransformerTest {
+    private static final int PORT = 34322;
+    private static final String URL = "http://localhost:" + PORT;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            private final TransportTransformer transformer = new TransportNdjsonTransformer(10);
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/export", cxt -> items(500).stream());
+                GET("/list", cxt -> new TransportList<>(items(50), Map.of()));
+                POST("/import", cxt -> {
+                    try (Stream<Item> stream = cxt.bodyAsNdjson(Item.class)) {
+                        List<Item> items = stream.collect(Collectors.toList());
+                        return Map.of("count", items.size(), "last", items.get(items.size() - 1).name);
+                    }
+                });
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    static List<Item> items(int size) {
+        return IntStream.range(0, size).mapToObj(i -> {
+            Item item = new Item();
+            item.id = i;
+            item.name = "item-" + i;
+            return item;
+        }).collect(Collectors.toList());
+    }
+
+    @Test
+    void export() {
+        List<Item> items = new ArrayList<>();
+        long count = new TransportRequest("GET", Request::Get, URL + "/export").asNdjson(Item.class, items::add);
+
+        assertEquals(500, count);
+        assertEquals(500, items.size());
+        assertEquals(499, items.get(499).id);
+        assertEquals("item-499", items.get(499).name);
+    }
+
+    @Test
+    void exportContentType() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URL + "/export")).build();
+        HttpResponse<Stream<String>> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(TransportRoute.APP_NDJSON, response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(500, response.body().filter(line -> !line.isEmpty()).count());
+    }
+
+    @Test
+    void jsonFallback() {
+        List<Item> items = new ArrayList<>();
+        long count = new TransportRequest("GET", Request::Get, URL + "/list").asNdjson(Item.class, items::add);
+
+        assertEquals(50, count);
+        assertEquals("item-49", items.get(49).name);
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        List<Item> items = new ArrayList<>();
+        new TransportRequest("GET", Request::Get, URL + "/export").asNdjson(Item.class, items::add);
+
+        String body = items.stream().map(JsonUtils::toString).collect(Collectors.joining("\n", "", "\n"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URL + "/import"))
+                .header("Content-Type", TransportRoute.APP_NDJSON)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(500, JsonUtils.jsonToTree(response.body()).path("data").path("count").asInt());
+        assertEquals("item-499", JsonUtils.jsonToTree(response.body()).path("data").path("last").asText());
+    }
+}
@@ -0,0 +1,69 @@
+package dev.fuxing.transport.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-22
+ * Time: 20:48
+ */
+class TransportRouteTableTest {
+
+    @Test
+    void find() {
+        TransportRouteTable<String> table = new TransportRouteTable<>();
+        table.add("/", "root");
+        table.add("/users", "users");
+        table.add("/users/", "users/");
+        table.add("/users/:userId", "user");
+        table.add("/users/me", "me");
+        table.add("/users/:userId/images/:imageId", "image");
+
+        assertEquals("root", table.find("/").getTarget());
+        assertEquals("users", table.find("/users").getTarget());
+        assertEquals("users/", table.find("/users/").getTarget());
+        assertEquals("me", table.find("/users/me").getTarget());
+        assertEquals("user", table.find("/users/123").getTarget());
+        assertEquals("image", table.find("/users/123/images/456").getTarget());
+
+        assertNull(table.find("/users/123/images"));
+        assertNull(table.find("/articles"));
+        assertEquals(6, table.size());
+    }
+
+    @Test
+    void param() {
+        TransportRouteTable<String> table = new TransportRouteTable<>();
+        table.add("/users/:userId/images/:imageId", "image");
+
+        TransportRouteTable.Match<String> match = table.find("/users/a%20b/images/456");
+        assertEquals("a b", match.param("userId"));
+        assertEquals("a b", match.param(":userid"));
+        assertEquals("456", match.param("imageId"));
+        assertNull(match.param("articleId"));
+    }
+
+    @Test
+    void backtrack() {
+        TransportRouteTable<String> table = new TransportRouteTable<>();
+        table.add("/users/me/settings", "settings");
+        table.add("/users/:userId/images", "images");
+
+        assertEquals("settings", table.find("/users/me/settings").getTarget());
+        assertEquals("images", table.find("/users/me/images").getTarget());
+        assertEquals("me", table.find("/users/me/images").param("userId"));
+    }
+
+    @Test
+    void duplicate() {
+        TransportRouteTable<String> table = new TransportRouteTable<>();
+        table.add("/users/:userId", "user");
+
+        assertThrows(IllegalArgumentException.class, () -> table.add("/users/:id", "user"));
+        assertThrows(IllegalArgumentException.class, () -> table.add("/users/*", "splat"));
+    }
+}
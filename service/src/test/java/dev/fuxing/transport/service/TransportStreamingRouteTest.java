@@ -0,0 +1,117 @@
+package dev.fuxing.transport.service;
+
+import dev.fuxing.err.BadRequestException;
+import dev.fuxing.transport.TransportList;
+import dev.fuxing.utils.JsonUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-07-01
+ * Time: 00:10
+ */
+class TransportStreamingRouteTest {
+    private static final int PORT = 34325;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            private final TransportTransformer transformer = new TransportStreamingTransformer(100);
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/items", cxt -> new TransportList<>(items(1000), Map.of("next", "cursor")));
+                GET("/item", cxt -> Map.of("a", 1));
+                GET("/empty", cxt -> TransportResult.ok());
+                GET("/error", cxt -> {
+                    throw new BadRequestException("The request could not be understood by the server due to malformed item.");
+                });
+            }
+        }, new TransportService() {
+            private final TransportTransformer transformer = new TransportStreamingTransformer() {
+                @Override
+                protected boolean streaming() {
+                    return false;
+                }
+
+                @Override
+                protected String toString(Map<String, Object> map) {
+                    return JsonUtils.toString(Map.of("simplified", true));
+                }
+            };
+
+            @Override
+            public TransportTransformer toJson() {
+                return transformer;
+            }
+
+            @Override
+            public void route() {
+                GET("/simplified", cxt -> Map.of("a", 1));
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static List<String> items(int size) {
+        return IntStream.range(0, size).mapToObj(i -> "item-" + i).collect(Collectors.toList());
+    }
+
+    static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void streamed() throws Exception {
+        HttpResponse<String> response = get("/items");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        assertEquals(items(1000), JsonUtils.toList(JsonUtils.jsonToTree(response.body()).path("data"), String.class));
+        assertEquals("cursor", JsonUtils.jsonToTree(response.body()).path("cursor").path("next").asText());
+
+        assertEquals("{\"data\":{\"a\":1}}", get("/item").body());
+        assertEquals("{}", get("/empty").body());
+    }
+
+    @Test
+    void error() throws Exception {
+        HttpResponse<String> response = get("/error");
+        assertEquals(400, response.statusCode());
+        assertEquals(400, JsonUtils.jsonToTree(response.body()).path("error").path("code").asInt());
+    }
+
+    @Test
+    void optOut() throws Exception {
+        HttpResponse<String> response = get("/simplified");
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"simplified\":true}", response.body());
+    }
+}
@@ -0,0 +1,87 @@
+package dev.fuxing.transport.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.fuxing.utils.JsonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 19:20
+ */
+class TransportStreamingTransformerTest {
+
+    static String stream(TransportTransformer transformer, TransportResult result) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transformer.render(result, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    static TransportResult result() {
+        return TransportResult.builder().data(List.of("a", "b")).build();
+    }
+
+    @Test
+    void streaming() throws Exception {
+        TransportResult result = result();
+        for (TransportTransformer transformer : List.of(new TransportTransformer(),
+                new TransportStreamingTransformer(), new TransportStreamingTransformer(1))) {
+            assertEquals("{\"data\":[\"a\",\"b\"]}", stream(transformer, result));
+            assertEquals(transformer.render(result), stream(transformer, result));
+        }
+    }
+
+    @Test
+    void toStringOverride() throws Exception {
+        TransportTransformer transformer = new TransportTransformer() {
+            @Override
+            protected String toString(Map<String, Object> map) {
+                return JsonUtils.toString(Map.of("simplified", true));
+            }
+        };
+
+        // Not opted in streaming, toString is used
+        assertEquals("{\"simplified\":true}", transformer.render(result()));
+        assertEquals("{\"simplified\":true}", stream(transformer, result()));
+
+        TransportTransformer optOut = new TransportStreamingTransformer(1) {
+            @Override
+            protected boolean streaming() {
+                return false;
+            }
+
+            @Override
+            protected String toString(Map<String, Object> map) {
+                return JsonUtils.toString(Map.of("simplified", true));
+            }
+        };
+        assertEquals("{\"simplified\":true}", stream(optOut, result()));
+    }
+
+    @Test
+    void writeOverride() throws Exception {
+        TransportTransformer transformer = new TransportStreamingTransformer() {
+            @Override
+            protected String toString(Map<String, Object> map) {
+                return JsonUtils.toString(Map.of("simplified", true));
+            }
+
+            @Override
+            protected void write(JsonGenerator generator, Map<String, Object> map) throws IOException {
+                writer().writeValue(generator, Map.of("streamed", true));
+            }
+        };
+
+        // Streaming is kept when write is overridden together with toString
+        assertEquals("{\"simplified\":true}", transformer.render(result()));
+        assertEquals("{\"streamed\":true}", stream(transformer, result()));
+    }
+}
@@ -0,0 +1,128 @@
+package dev.fuxing.transport.service.context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.transport.service.SparkServiceEngine;
+import dev.fuxing.transport.service.TransportServer;
+import dev.fuxing.transport.service.TransportService;
+import dev.fuxing.utils.JsonUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ServletRequestWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-29
+ * Time: 11:40
+ */
+class ContextBodyTest {
+    private static final int PORT = 34315;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new TransportService() {
+            @Override
+            public void route() {
+                POST("/stream", cxt -> {
+                    AtomicBoolean streamed = new AtomicBoolean();
+                    long count;
+                    try (Stream<Item> stream = cxt.bodyAsStream(Item.class)) {
+                        count = stream.peek(item -> {
+                            if (item.id != 0) return;
+                            // Spark wrapper did not buffer the body, it is still being read at the first element
+                            try {
+                                streamed.set(!((ServletRequestWrapper) cxt.request().raw()).getRequest().getInputStream().isFinished());
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }).count();
+                    }
+                    return Map.of("count", count, "streamed", streamed.get());
+                });
+
+                POST("/repeat", cxt -> {
+                    JsonNode first = cxt.bodyAsJson();
+                    Item item = cxt.bodyAsObject(Item.class);
+                    JsonNode second = cxt.bodyAsJson();
+                    assertEquals(first, second);
+                    assertEquals(first.path("id").asInt(), item.id);
+                    return Map.of("id", item.id, "length", cxt.bodyAsBytes().length);
+                });
+            }
+        });
+        server.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+    }
+
+    static JsonNode post(String path, byte[] body, boolean chunked) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = chunked
+                ? HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body))
+                : HttpRequest.BodyPublishers.ofByteArray(body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .header("Content-Type", "application/json")
+                .POST(publisher)
+                .build();
+        HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return JsonUtils.jsonToTree(response.body()).path("data");
+    }
+
+    @Test
+    void stream() throws Exception {
+        List<Item> items = IntStream.range(0, 200_000).mapToObj(Item::new).collect(Collectors.toList());
+        byte[] body = JsonUtils.toString(items).getBytes(StandardCharsets.UTF_8);
+
+        for (boolean chunked : new boolean[]{false, true}) {
+            JsonNode data = post("/stream", body, chunked);
+            assertEquals(200_000, data.path("count").asLong());
+            assertTrue(data.path("streamed").asBoolean());
+        }
+    }
+
+    @Test
+    void repeat() throws Exception {
+        byte[] body = "{\"id\":42,\"name\":\"name\"}".getBytes(StandardCharsets.UTF_8);
+
+        for (boolean chunked : new boolean[]{false, true}) {
+            JsonNode data = post("/repeat", body, chunked);
+            assertEquals(42, data.path("id").asInt());
+            assertEquals(body.length, data.path("length").asInt());
+        }
+    }
+
+    public static class Item {
+        public int id;
+        public String name;
+
+        public Item() {
+        }
+
+        Item(int id) {
+            this.id = id;
+            this.name = "name-" + id;
+        }
+    }
+}
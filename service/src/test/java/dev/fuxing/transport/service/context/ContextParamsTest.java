@@ -0,0 +1,165 @@
+package dev.fuxing.transport.service.context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.transport.TransportCursor;
+import dev.fuxing.transport.TransportCursorSigner;
+import dev.fuxing.transport.service.CompiledRouteEngine;
+import dev.fuxing.transport.service.SparkServiceEngine;
+import dev.fuxing.transport.service.TransportContext;
+import dev.fuxing.transport.service.TransportServer;
+import dev.fuxing.transport.service.TransportService;
+import dev.fuxing.utils.JsonUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by: Fuxing
+ * Date: 2020-06-30
+ * Time: 20:15
+ */
+class ContextParamsTest {
+    private static final int PORT = 34320;
+    private static final int COMPILED_PORT = 34321;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static TransportServer server;
+    private static TransportServer compiled;
+
+    @BeforeAll
+    static void setUp() {
+        server = TransportServer.start(SparkServiceEngine.builder().build(), PORT, "", new ParamsService());
+        compiled = TransportServer.start(new CompiledRouteEngine(SparkServiceEngine.builder().build()), COMPILED_PORT, "", new ParamsService());
+        server.awaitInitialization();
+        compiled.awaitInitialization();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop();
+        compiled.stop();
+    }
+
+    static class ParamsService implements TransportService {
+        @Override
+        public void route() {
+            BEFORE("/params/:id", cxt -> {
+                cxt.request().attribute("filter.id", cxt.pathString("id", null));
+                cxt.request().attribute("filter.params", cxt.params());
+            });
+
+            GET("/params/:name", cxt -> {
+                ContextParams params = cxt.params();
+                Map<String, Object> map = new HashMap<>();
+                map.put("filterId", cxt.request().attribute("filter.id"));
+                map.put("name", cxt.pathString("name"));
+                map.put("id", cxt.pathString("id", "none"));
+
+                // Same instance across contexts of the request
+                map.put("shared", cxt.request().attribute("filter.params") == params &&
+                        new TransportContext(cxt.request(), cxt.response()).params() == params);
+
+                // Typed caches are independent
+                map.put("long", params.queryLong("n"));
+                map.put("int", params.queryInt("n"));
+                map.put("double", params.queryDouble("n"));
+                map.put("cached", params.queryLong("n") == params.queryLong("n"));
+
+                // Blank and missing are cached as null
+                map.put("blank", params.queryLong("blank") == null && params.queryLong("blank") == null);
+                map.put("missing", params.queryInt("missing") == null && params.queryInt("missing") == null);
+
+                // Cursor is cached, copies do not change it
+                TransportCursor cursor = params.queryCursor("cursor");
+                TransportCursor copy = TransportCursor.builder().putAll(cursor).put("n", "changed").build();
+                map.put("cursor", cursor == params.queryCursor("cursor"));
+                map.put("cursorN", params.queryCursor("cursor").get("n"));
+                map.put("copyN", copy.get("n"));
+                return map;
+            });
+
+            GET("/cursor", cxt -> {
+                TransportCursor cursor = cxt.params().queryCursor("cursor");
+                return Map.of("id", cursor.get("id"), "size", cursor.get("size"));
+            });
+
+            GET("/malformed", cxt -> {
+                cxt.params().queryLong("n");
+                return Map.of();
+            });
+        }
+    }
+
+    static HttpResponse<String> get(int port, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void params() throws Exception {
+        for (int port : new int[]{PORT, COMPILED_PORT}) {
+            HttpResponse<String> response = get(port, "/params/abc?n=5&blank=");
+            assertEquals(200, response.statusCode());
+            JsonNode data = JsonUtils.jsonToTree(response.body()).path("data");
+
+            // Filter and route params are read from their own path
+            assertEquals("abc", data.path("filterId").asText());
+            assertEquals("abc", data.path("name").asText());
+            assertEquals("none", data.path("id").asText());
+            assertTrue(data.path("shared").asBoolean());
+
+            assertEquals(5, data.path("long").asLong());
+            assertTrue(data.path("int").isInt());
+            assertEquals(5.0, data.path("double").asDouble());
+            assertTrue(data.path("cached").asBoolean());
+            assertTrue(data.path("blank").asBoolean());
+            assertTrue(data.path("missing").asBoolean());
+
+            assertTrue(data.path("cursor").asBoolean());
+            assertEquals("5", data.path("cursorN").asText());
+            assertEquals("changed", data.path("copyN").asText());
+        }
+    }
+
+    @Test
+    void signedCursor() throws Exception {
+        TransportCursor.setSigner(TransportCursorSigner.signed(TransportCursorSigner.KeyRing.of(0, Map.of(
+                0, "0123456789abcdef".getBytes()
+        ))));
+        try {
+            String base64 = TransportCursor.builder().put("id", "1").toBase64();
+            for (int port : new int[]{PORT, COMPILED_PORT}) {
+                HttpResponse<String> response = get(port, "/cursor?cursor=" + base64 + "&id=2&size=5");
+                assertEquals(200, response.statusCode());
+                JsonNode data = JsonUtils.jsonToTree(response.body()).path("data");
+
+                // Signed keys cannot be overwritten by query string
+                assertEquals("1", data.path("id").asText());
+                assertEquals("5", data.path("size").asText());
+            }
+        } finally {
+            TransportCursor.setSigner(null);
+        }
+
+        // Unsigned, query string still takes precedence
+        String base64 = TransportCursor.builder().put("id", "1").toBase64();
+        JsonNode data = JsonUtils.jsonToTree(get(PORT, "/cursor?cursor=" + base64 + "&id=2&size=5").body()).path("data");
+        assertEquals("2", data.path("id").asText());
+    }
+
+    @Test
+    void malformed() throws Exception {
+        assertEquals(400, get(PORT, "/malformed?n=abc").statusCode());
+        assertEquals(200, get(PORT, "/malformed?n=1").statusCode());
+    }
+}